@@ -0,0 +1,121 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.FlatGen;
+import com.andedit.arcubit.world.gen.GenProfiler;
+import com.andedit.arcubit.world.gen.HillGen;
+import com.andedit.arcubit.world.gen.RegionGen;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+import com.badlogic.gdx.utils.Array;
+
+/** Compare the {@link ChunkCodec}s on the chunks of a FlatGen and a HillGen world: the compression ratio, and the encode
+ * and decode speed in MB of blocks per second on a thread. The all air chunks are left out, the saves don't encode them.
+ * Arguments: [seed] [radius in regions] [json file], the json file is optional. */
+public class CodecReport
+{
+	/** Min time to measure a codec on a world. */
+	static final long minNanos = 500000000L;
+
+	public static void main(String[] args) throws IOException {
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		final int radius = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+		Blocks.loadBlocks();
+		GenProfiler.enabled = false;
+		final StringBuilder json = new StringBuilder("{");
+		System.out.println("Seed " + seed + " radius " + radius + ".");
+		System.out.println(String.format("%-6s %-16s %8s %8s %12s %12s", "world", "codec", "chunks", "ratio", "encode MB/s", "decode MB/s"));
+		report("flat", new FlatGen(seed), seed, radius, json);
+		report("hill", new HillGen(seed), seed, radius, json);
+		json.append("\n}\n");
+
+		if (args.length > 2) {
+			final File file = new File(args[2]);
+			if (file.getParentFile() != null) file.getParentFile().mkdirs();
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	static void report(String name, RegionGen gen, long seed, int radius, StringBuilder json) throws IOException {
+		final byte[][] chunks = sample(gen, seed, radius);
+		final long bytes = (long)chunks.length*ChunkCodec.VOLUME;
+		final byte[] payload = new byte[ChunkCodec.MAX];
+		final byte[] blocks = new byte[ChunkCodec.VOLUME];
+
+		for (ChunkCodec codec : ChunkCodec.newCodecs()) {
+			if (codec == null) continue;
+
+			// The encoded chunks, also checks the round trip.
+			final byte[][] encoded = new byte[chunks.length][];
+			long size = 0;
+			for (int i = 0; i < chunks.length; i++) {
+				final int length = codec.encode(chunks[i], payload, 0);
+				encoded[i] = Arrays.copyOf(payload, length);
+				size += length+1;
+				codec.decode(encoded[i], 0, length, blocks);
+				if (!Arrays.equals(blocks, chunks[i])) throw new IllegalStateException(codec + " broke a chunk.");
+			}
+
+			int passes = 0;
+			long time = System.nanoTime(), nanos;
+			do {
+				for (byte[] chunk : chunks) codec.encode(chunk, payload, 0);
+				passes++;
+			} while ((nanos = System.nanoTime()-time) < minNanos);
+			final double encode = bytes*passes/(nanos/1e9)/(1<<20);
+
+			passes = 0;
+			time = System.nanoTime();
+			do {
+				for (byte[] data : encoded) codec.decode(data, 0, data.length, blocks);
+				passes++;
+			} while ((nanos = System.nanoTime()-time) < minNanos);
+			final double decode = bytes*passes/(nanos/1e9)/(1<<20);
+			codec.end();
+
+			final double ratio = bytes/(double)size;
+			System.out.println(String.format("%-6s %-16s %8d %8.1f %12.1f %12.1f", name, codec, chunks.length, ratio, encode, decode));
+			if (json.length() != 1) json.append(',');
+			json.append("\n  \"").append(name).append('/').append(codec).append("\": {\"chunks\": ").append(chunks.length);
+			json.append(", \"ratio\": ").append(String.format("%.2f", ratio));
+			json.append(", \"encodeMBs\": ").append(String.format("%.1f", encode));
+			json.append(", \"decodeMBs\": ").append(String.format("%.1f", decode)).append('}');
+		}
+	}
+
+	/** The flat blocks of the chunks of the ready regions that are not all air. */
+	static byte[][] sample(RegionGen gen, long seed, int radius) {
+		final World world = new World(seed, gen);
+		world.loader.genNow(World.CENTER>>4, World.CENTER>>4, radius);
+		final Array<byte[]> chunks = new Array<byte[]>();
+		for (ChunkRegion[] row : world.regions)
+		for (ChunkRegion region : row) {
+			if (region == null || !region.isReady()) continue;
+			for (Chunk chunk : region.chunks) {
+				final byte[] blocks = new byte[ChunkCodec.VOLUME];
+				ChunkCodec.copy(chunk.blocks, blocks);
+				if (!isAir(blocks)) chunks.add(blocks);
+			}
+		}
+		world.dispose();
+		return chunks.toArray(byte[].class);
+	}
+
+	static boolean isAir(byte[] blocks) {
+		for (byte block : blocks) {
+			if (block != Blocks.AIR) return false;
+		}
+		return true;
+	}
+}
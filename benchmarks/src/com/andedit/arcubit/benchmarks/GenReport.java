@@ -0,0 +1,50 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.GenProfiler;
+import com.andedit.arcubit.world.gen.RegionGen;
+
+/** Generate a world headless and print the {@link GenProfiler} report, to track the generation time between changes.
+ * Arguments: [seed] [radius in regions] [generator name] [json file], the json file is optional. The names are the
+ * {@link RegionGen#names}, hill profiles the coarse hills and hill-exact the hills sampled at every block. */
+public class GenReport
+{
+	public static void main(String[] args) throws IOException {
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		final int radius = args.length > 1 ? Integer.parseInt(args[1]) : World.defaultSize/2;
+		final String name = args.length > 2 ? args[2] : "flat";
+
+		Blocks.loadBlocks();
+		final int id = Arrays.asList(RegionGen.names).indexOf(name);
+		if (id == -1) throw new IllegalArgumentException("Unknown generator: " + name + ", one of " + Arrays.toString(RegionGen.names));
+		final RegionGen gen = RegionGen.newGen(id, seed);
+
+		GenProfiler.enabled = false; // only the radius below.
+		final World world = new World(seed, gen);
+		GenProfiler.enabled = true;
+		GenProfiler.reset();
+
+		final long time = System.nanoTime();
+		world.loader.genNow(World.CENTER>>4, World.CENTER>>4, radius);
+		final long wall = System.nanoTime()-time;
+		world.dispose();
+
+		System.out.println("Generated " + name + " seed " + seed + " radius " + radius + " in " + wall/1000000 + " ms with "
+		+ Runtime.getRuntime().availableProcessors() + " cores.");
+		System.out.print(GenProfiler.report());
+		if (args.length > 3) {
+			final File file = new File(args[3]);
+			if (file.getParentFile() != null) file.getParentFile().mkdirs();
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				out.write(GenProfiler.toJson().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+}
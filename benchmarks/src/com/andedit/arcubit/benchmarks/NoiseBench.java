@@ -0,0 +1,107 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.util.math.FastNoise;
+import com.andedit.arcubit.util.math.OpenSimplex2S;
+
+/** The noise the generators sample for a region, one sample at a time against the bulk fills. The grids are the ones
+ * the generators use: the 16x16 fractal lands of FlatGen, the 10x10x10 leaves box of a tree, the 16x16 plane and a
+ * column of the hills of HillGen. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class NoiseBench
+{
+	static final int size = Chunk.SIZE, leaves = 10, height = ChunkRegion.HEIGHT;
+
+	private final FastNoise lands = new FastNoise(1);
+	private final FastNoise trees = new FastNoise(2);
+	private final OpenSimplex2S hills = new OpenSimplex2S(3);
+
+	private final float[] plane = new float[size*size];
+	private final float[] box = new float[leaves*leaves*leaves];
+	private final double[] plane2 = new double[size*size];
+	private final double[] column = new double[height];
+
+	public NoiseBench() {
+		lands.SetFractalOctaves(5);
+		lands.SetFractalGain(0.5f);
+		lands.SetFrequency(0.005f);
+	}
+
+	@Benchmark
+	public float[] landsSingle() {
+		for (int z = 0; z < size; z++)
+		for (int x = 0; x < size; x++) {
+			plane[x + z*size] = lands.GetPerlinFractal(x + 512, z + 512);
+		}
+		return plane;
+	}
+
+	@Benchmark
+	public float[] landsFill() {
+		lands.FillPerlinFractal(plane, 512, 512, size, size, 1f);
+		return plane;
+	}
+
+	@Benchmark
+	public float[] leavesSingle() {
+		for (int z = 0; z < leaves; z++)
+		for (int y = 0; y < leaves; y++)
+		for (int x = 0; x < leaves; x++) {
+			box[x + leaves*(y + leaves*z)] = trees.GetPerlin((x+512)/3f, (y+60)/3f, (z+512)/3f);
+		}
+		return box;
+	}
+
+	@Benchmark
+	public float[] leavesFill() {
+		trees.FillPerlin(box, 512/3f, 60/3f, 512/3f, leaves, leaves, leaves, 1f/3f);
+		return box;
+	}
+
+	@Benchmark
+	public double[] planeSingle() {
+		for (int z = 0; z < size; z++)
+		for (int x = 0; x < size; x++) {
+			plane2[x + z*size] = hills.noise2((x+512)/150d, (z+512)/150d);
+		}
+		return plane2;
+	}
+
+	@Benchmark
+	public double[] planeFill() {
+		hills.fillNoise2(plane2, 512/150d, 512/150d, size, size, 1/150d);
+		return plane2;
+	}
+
+	@Benchmark
+	public double[] columnSingle() {
+		for (int y = 0; y < height; y++) {
+			column[y] = hills.noise3_XZBeforeY(512/32d, y/24d, 512/32d);
+		}
+		return column;
+	}
+
+	@Benchmark
+	public double[] columnFill() {
+		hills.fillNoise3_XZBeforeY(column, 512/32d, 0d, 512/32d, 1, height, 1, 1/32d, 1/24d);
+		return column;
+	}
+}
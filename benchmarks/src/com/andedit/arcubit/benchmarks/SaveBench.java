@@ -0,0 +1,77 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.FlatGen;
+import com.andedit.arcubit.world.gen.GenProfiler;
+import com.andedit.arcubit.world.save.RegionFile;
+
+/** Save and read a whole generated FlatGen world with the {@link RegionFile} on a pool of the given threads. The
+ * save file is in the temp folder, so it's mostly the page cache. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SaveBench
+{
+	@Param({"1", "2", "4", "8", "16"})
+	public int threads;
+
+	private ForkJoinPool pool;
+	private World world, loaded;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Blocks.loadBlocks();
+		GenProfiler.enabled = false;
+		world = new World(42, new FlatGen(42));
+		world.loader.genNow(World.CENTER>>4, World.CENTER>>4, World.defaultSize/2);
+		loaded = new World(false);
+		pool = new ForkJoinPool(threads);
+		file = File.createTempFile("arcubit", ".arcubit");
+		RegionFile.save(world, file, pool);
+	}
+
+	@TearDown(Level.Trial)
+	public void dispose() {
+		pool.shutdown();
+		world.dispose();
+		file.delete();
+	}
+
+	@Benchmark
+	public long save() throws IOException {
+		RegionFile.save(world, file, pool);
+		return file.length();
+	}
+
+	@Benchmark
+	public World read() throws IOException {
+		try (RegionFile save = RegionFile.open(file)) {
+			save.readAll(loaded, pool);
+		}
+		return loaded;
+	}
+}
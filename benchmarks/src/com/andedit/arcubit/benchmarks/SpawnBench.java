@@ -0,0 +1,58 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andedit.arcubit.particles.BitPools;
+import com.andedit.arcubit.particles.bits.Fragment;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector3;
+
+/** Spawn throughput of {@link Fragment}: obtain from the pool and initialize, then free them back so the pool stays in
+ * the steady state. Run it with the JMH option -t to spawn from several threads at once. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SpawnBench
+{
+	@Param({"10000", "100000", "1000000", "3000000"})
+	public int count;
+
+	private final TextureRegion region = new TextureRegion();
+	private final Vector3 target = new Vector3(0, 100, 0);
+	private final Random rand = new Random();
+	private Fragment[] frags;
+
+	@Setup
+	public void setup() {
+		frags = new Fragment[count];
+	}
+
+	@Benchmark
+	public Fragment[] spawn() {
+		final Fragment[] frags = this.frags;
+		rand.setSeed(1);
+		for (int i = 0; i < frags.length; i++) {
+			frags[i] = BitPools.obtain(Fragment.class).ints(target, region, 1f, rand);
+		}
+		for (int i = 0; i < frags.length; i++) {
+			BitPools.free(frags[i]);
+		}
+		return frags;
+	}
+}
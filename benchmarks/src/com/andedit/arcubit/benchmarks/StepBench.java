@@ -0,0 +1,121 @@
+package com.andedit.arcubit.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andedit.arcubit.particles.BitPools;
+import com.andedit.arcubit.particles.bits.Fragment;
+import com.andedit.arcubit.particles.threads.ParticleFrame;
+import com.andedit.arcubit.particles.threads.ParticleSimulation;
+import com.andedit.arcubit.world.World;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/** A single tick step of the {@link ParticleSimulation} full of {@link Fragment}s, headless in an empty world.
+ * {@link #update()} looks away from the fragments so nothing is emitted, {@link #updateAndEmit()} looks at them, the
+ * difference is the vertex emit cost. The fragments are reset to the same seeded state every {@link #lifeSteps} steps,
+ * before any of them falls to death, so every run steps the same particles. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class StepBench
+{
+	/** Steps between the resets. */
+	static final int lifeSteps = 64;
+
+	@Param({"10000", "100000", "1000000", "3000000"})
+	public int count;
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	private final TextureRegion region = new TextureRegion();
+	private final Vector3 target = new Vector3(0, 100, 0);
+	private final Random rand = new Random();
+
+	private ParticleSimulation sim;
+	private PerspectiveCamera cam;
+	private Fragment[] frags;
+	private int steps;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		GdxNativesLoader.load(); // the camera math is native.
+		sim = new ParticleSimulation(new World(false), count, threads);
+		cam = new PerspectiveCamera(70, 1280, 720);
+		cam.far = 1000f;
+		cam.position.set(target).add(0, 10, -40);
+
+		frags = new Fragment[count];
+		for (int i = 0; i < count; i++) {
+			frags[i] = BitPools.obtain(Fragment.class);
+		}
+		reset();
+
+		// The spawn queue is smaller than the store, add them in parts.
+		for (int i = 0; i < count;) {
+			final int to = Math.min(i+ParticleSimulation.spawnCapacity, count);
+			while (i < to) sim.add(frags[i++]);
+			step(0);
+		}
+		if (sim.getSize() != count) {
+			throw new IllegalStateException("Expected " + count + " particles, got " + sim.getSize());
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void resetOften() {
+		if (++steps % lifeSteps == 0) reset();
+	}
+
+	@TearDown(Level.Trial)
+	public void dispose() {
+		sim.dispose();
+	}
+
+	@Benchmark
+	public ParticleFrame update() {
+		cam.direction.set(0, 0, -1); // away from the fragments.
+		cam.update();
+		return step(1);
+	}
+
+	@Benchmark
+	public ParticleFrame updateAndEmit() {
+		cam.direction.set(0, 0, 1);
+		cam.update();
+		return step(1);
+	}
+
+	private ParticleFrame step(int ticks) {
+		sim.setView(cam);
+		sim.start(ticks);
+		sim.await();
+		return sim.finish();
+	}
+
+	private void reset() {
+		rand.setSeed(1);
+		for (int i = 0; i < count; i++) {
+			frags[i].ints(target, region, 1f, rand);
+		}
+	}
+}
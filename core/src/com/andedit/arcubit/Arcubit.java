@@ -19,6 +19,8 @@ import com.andedit.arcubit.util.GdxUtil;
 import com.andedit.arcubit.util.Shaders;
 import com.andedit.arcubit.util.Util;
 import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.save.AutoSave;
+import com.andedit.arcubit.world.save.Residency;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
@@ -40,6 +42,7 @@ public class Arcubit extends ApplicationAdapter
 	
 	public World world;
 	public Player player;
+	public AutoSave save;
 	public ScreenViewport view = new ScreenViewport();
 	
 	private Matrix4 combined;
@@ -81,6 +84,12 @@ public class Arcubit extends ApplicationAdapter
 		box = new BoxRenderer(cam);
 		
 		player = new Player(cam, world);
+		save = new AutoSave(world, Saver.file);
+		if (world.loader != null) {
+			// Past the render distance, and half the heap for the regions.
+			final int budget = (int)(Runtime.getRuntime().maxMemory()/2/Residency.regionBytes);
+			world.loader.residency = new Residency(world, save, world.loader.radius+4, budget);
+		}
 	}
 	
 	BoxRenderer box;
@@ -102,8 +111,12 @@ public class Arcubit extends ApplicationAdapter
 	{
 		GdxUtil.closeOnEsc();
 		if (Inputs.isKeyJustPressed(Keys.F4)) {
-			Saver.save(world);
+			save.saveNow();
+		}
+		if (Inputs.isKeyJustPressed(Keys.F5) && world.loader != null) {
+			Util.log(Residency.class, world.loader.residency.report());
 		}
+		save.update(Gdx.graphics.getDeltaTime());
 		
 		Gdx.gl.glUseProgram(0);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
@@ -146,7 +159,7 @@ public class Arcubit extends ApplicationAdapter
 	
 	@Override
 	public void dispose () {
-		GdxUtil.disposes(batch, font, box); 
+		GdxUtil.disposes(batch, font, box, save); 
 		if (TexLib.atlas != null) TexLib.atlas.dispose();
 		world.dispose();
 	}
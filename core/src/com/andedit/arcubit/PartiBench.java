@@ -11,6 +11,7 @@ import com.andedit.arcubit.chunk.ChunkRegion;
 import com.andedit.arcubit.particles.BitPools;
 import com.andedit.arcubit.particles.bits.Fragment;
 import com.andedit.arcubit.util.Camera;
+import com.andedit.arcubit.util.Util;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.GridPoint3;
@@ -33,6 +34,7 @@ public class PartiBench
 	
 	public static void exec(Camera cam) {
 		if (isBench) {
+			Util.log(PartiBench.class, BitPools.getStats());
 			cam.position.set(lastPos);
 			cam.fieldOfView = 70f;
 			cam.far = 500f;
@@ -41,6 +43,7 @@ public class PartiBench
 			cam.far = 2000f;
 			cam.near = 20f;
 			rad = 0f;
+			BitPools.resetStats();
 			lastPos.set(cam.position);
 			final int xFloor = floor(cam.position.x);
 			final int zFloor = floor(cam.position.z);
@@ -74,7 +77,8 @@ public class PartiBench
 		final float power = 1.5f;
 		
 		final Random rand = MathUtils.random;
-		for (int i = 0; i < 5000; i++) {
+		final int count = world.parts.spawnCount(5000, target);
+		for (int i = 0; i < count; i++) {
 			TextureRegion reg = null;
 			switch (rand.nextInt(5)) {
 			case 0: reg = blocks[Blocks.GRASS].textures.side; break;
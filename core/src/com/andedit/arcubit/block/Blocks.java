@@ -67,6 +67,8 @@ public final class Blocks
 	
 	public static final int size = i;
 	public static final Block[] blocks = new Block[size];
+	/** {@link Block#isSoild} by the unsigned id, without the block lookup. Has all 256 ids, the unknown ones are not solid. */
+	public static final boolean[] solid = new boolean[256];
 	
 	/** Make sure the textures loaded first. */
 	public static void loadBlocks() {
@@ -128,6 +130,9 @@ public final class Blocks
 		blocks[WOOLGRAY] = new Block(WOOLGRAY, "Gray Wool", true, BlockType.WOOL);
 		blocks[WOOLBLACK] = new Block(WOOLBLACK, "Black Wool", true, BlockType.WOOL);
 		blocks[WOOLBROWN] = new Block(WOOLBROWN, "Brown Wool", true, BlockType.WOOL);
+		for (int id = 0; id < size; id++) {
+			solid[id] = blocks[id] != null && blocks[id].isSoild;
+		}
 	}
 	
 	public static void loadTextures() {;
@@ -24,6 +24,13 @@ public class Chunk
 	/** Is this chunk needs update their mesh. */
 	public boolean isDirty = false;
 	
+	/** The version of the blocks, counts the edits. Counted by the generation for every stage that may touch the chunk,
+	 * and only by the render thread once the region is ready. */
+	public int version = 1;
+	
+	/** The version in the save, the chunk needs to be saved if it's behind the version. */
+	public int savedVersion;
+	
 	/** Is this a new unloaded chunk. Than build the chunk model when player  */ 
 	public boolean isNewChunk = true;
 	
@@ -56,12 +63,18 @@ public class Chunk
 		return world.getBlock(x, y, z);
 	}
 	
+	/** Is this chunk changed since it was saved or loaded. */
+	public boolean needSave() {
+		return version != savedVersion;
+	}
+	
 	public void setBlock(int x, int y, int z, byte ID)
 	{
 		if (x < 0 || y < 0 || z < 0 || x > 15 || y > 15 || z > 15)
 			return;
 		
 		blocks[x][y][z] = ID;
+		region.updateHeight(x, (this.y<<4)+y, z, ID);
 	}
 	
 	/** &15 (mod) will be applied in this method. TODO: Try to optimize it. */ 
@@ -70,7 +83,9 @@ public class Chunk
 		final int xFix   = x&15, yFix   = y&15, zFix   = z&15;
 		final int xChunk = x>>4, yChunk = y>>4, zChunk = z>>4;
 		blocks[xFix][yFix][zFix] = block.id;
+		region.updateHeight(xFix, y, zFix, block.id);
 		isDirty = true;
+		version++;
 		
 		Chunk chunk;
 		final World world = getWorld();
@@ -1,8 +1,10 @@
 package com.andedit.arcubit.chunk;
 
-import static com.andedit.arcubit.block.Blocks.blocks;
+import static com.andedit.arcubit.block.Blocks.solid;
 import static com.andedit.arcubit.chunk.Chunk.SIZE;
 
+import java.util.Arrays;
+
 import com.andedit.arcubit.world.World;
 
 public class ChunkRegion 
@@ -10,6 +12,13 @@ public class ChunkRegion
 	public static final int LENGTH = 6;
 	public static final int HEIGHT = LENGTH*SIZE;
 	
+	// Generation states. Only ready regions are meshed and rendered, the others are pending. In between, the state is
+	// the number of the generation stages done.
+	/** Nothing is generated yet. */
+	public static final int EMPTY = 0;
+	/** All the stages of the region and of the neighbours are done, so nothing can change the region anymore. */
+	public static final int READY = Integer.MAX_VALUE;
+	
 	final World world;
 	
 	public final int xR;
@@ -17,46 +26,65 @@ public class ChunkRegion
 	
 	public final Chunk[] chunks;
 	
-	public final byte[][] lightMap;
-	public boolean needUpdate;
-	public byte loopDown;
+	/** The height of the top solid block of each column, [x][z], -1 if there is none. Kept by the setters, and built
+	 * whole by {@link #buildHeights()} after the blocks are written directly. */
+	public final byte[][] heights;
+	
+	/** The generation state. Written by the generation pipeline. */
+	public volatile int state;
 	
 	public ChunkRegion(World world, int x, int z)
 	{
 		this.world = world;
 		xR = x;
 		zR = z;
-		loopDown = -1;
 		chunks = new Chunk[LENGTH];
 		for (int i = 0; i < LENGTH; i++) {
 			chunks[i] = new Chunk(this, x, i, z);
 		}
-		lightMap = new byte[SIZE][SIZE];
-		needUpdate = false;
+		heights = new byte[SIZE][SIZE];
+		for (byte[] row : heights) Arrays.fill(row, (byte)-1);
 	}
 	
-	public short getLightMap(int x, int z) {
-		if (needUpdate) reLighting();
-		return lightMap[x][z];		
+	public boolean isReady() {
+		return state == READY;
 	}
 	
-	public void reLighting() 
-	{
-		byte h = (byte)HEIGHT-1;
-		for (int x = 0; x < SIZE; x++)
-		{
-			for (int z = 0; z < SIZE; z++)
-			{
-				for (byte y = h; y > -1; y--)
-				{
-					if (blocks[getBlockChunkf(x, y, z)].isSoild) {
-						lightMap[x][z] = y;
-						break;
+	/** Scan the columns from the top for the heights, a row of 16 columns along Z at a time. */
+	public void buildHeights() {
+		for (int x = 0; x < SIZE; x++) {
+			final byte[] column = heights[x];
+			Arrays.fill(column, (byte)-1);
+			int left = SIZE;
+			for (int y = HEIGHT-1; y > -1 && left != 0; y--) {
+				final byte[] row = chunks[y>>>4].blocks[x][y&15];
+				for (int z = 0; z < SIZE; z++) {
+					if (column[z] == -1 && solid[row[z]&0xFF]) {
+						column[z] = (byte)y;
+						left--;
 					}
 				}
 			}
 		}
-		needUpdate = false;
+	}
+	
+	/** Keep the height of the column after a block is set at the local position. Scans down only if the top block is
+	 * removed, so it's O(1) amortised. */
+	public void updateHeight(int x, int y, int z, byte ID) {
+		final int top = heights[x][z];
+		if (solid[ID&0xFF]) {
+			if (y > top) heights[x][z] = (byte)y;
+		} else if (y == top) {
+			heights[x][z] = (byte)scanDown(x, y-1, z);
+		}
+	}
+	
+	/** The height of the first solid block at or below y, -1 if there is none. */
+	private int scanDown(int x, int y, int z) {
+		for (; y > -1; y--) {
+			if (solid[chunks[y>>>4].blocks[x][y&15][z]&0xFF]) return y;
+		}
+		return -1;
 	}
 	
 	public byte getBlock(int x, int y, int z) {
@@ -65,6 +93,7 @@ public class ChunkRegion
 	
 	public void setBlock(int x, int y, int z, byte ID) {
 		chunks[y>>>4].blocks[x&15][y&15][z&15] = ID;
+		updateHeight(x&15, y, z&15, ID);
 	}
 	
 	public byte getBlockChunk(int x, int y, int z) {
@@ -83,6 +112,7 @@ public class ChunkRegion
 	
 	public void setBlockChunkf(int x, int y, int z, byte ID) {
 		chunks[y>>>4].blocks[x][y&15][z] = ID;
+		updateHeight(x, y, z, ID);
 	}
 	
 	public boolean matches(int x, int z) {
@@ -97,40 +127,8 @@ public class ChunkRegion
 		return isUnsafe(y) ? null : chunks[y];		
 	}
 	
-	public void reLighting(int x, int z, boolean needCheck) 
-	{
-		x &= 15;
-		z &= 15;
-		if (needCheck) {
-			for (byte y = (byte)(HEIGHT-1); y > -1; y--)
-			{
-				if (blocks[getBlockChunkf(x, y, z)].isSoild) {
-					lightMap[x][z] = y;
-					return;
-				}
-			}
-		}
-		
-		boolean mode = true;
-		for (byte y = (byte)HEIGHT-1; y > -1; y--)
-		{
-			if (mode) {
-				if (blocks[getBlockChunkf(x, y, z)].isSoild) {
-					lightMap[x][z] = y;
-					mode = false;
-					//return;
-				}
-			} else {
-				if (blocks[getBlockChunkf(x, y, z)].isSoild) {
-					loopDown = (byte)((y>>>4)-1);
-					return;
-				}
-			}
-		}
-		loopDown = -1;
-	}
-	
-	public byte getLight(int x, int z)	{
-		return lightMap[x&15][z&15];
+	/** The height of the top solid block of the column, -1 if there is none. */
+	public byte getHeight(int x, int z) {
+		return heights[x&15][z&15];
 	}
 }
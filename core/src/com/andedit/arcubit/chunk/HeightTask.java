@@ -0,0 +1,52 @@
+package com.andedit.arcubit.chunk;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.andedit.arcubit.world.World;
+
+/** Build the heights of the regions [lo, hi), after their blocks are written directly by the generation or a load.
+ * Splits in half until a single region is left. */
+public class HeightTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
+	private final ChunkRegion[] regions;
+	private final int lo, hi;
+
+	HeightTask(ChunkRegion[] regions, int lo, int hi) {
+		this.regions = regions;
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	/** Build the heights of the regions on the common pool. Blocks until done. */
+	public static void run(ChunkRegion[] regions, int size) {
+		if (size == 1) {
+			regions[0].buildHeights();
+		} else if (size != 0) {
+			ForkJoinPool.commonPool().invoke(new HeightTask(regions, 0, size));
+		}
+	}
+
+	/** Build the heights of all the regions of the world. */
+	public static void run(World world) {
+		final ChunkRegion[] regions = new ChunkRegion[World.defaultSize*World.defaultSize];
+		int size = 0;
+		for (ChunkRegion[] row : world.regions)
+		for (ChunkRegion region : row) {
+			if (region != null) regions[size++] = region;
+		}
+		run(regions, size);
+	}
+
+	@Override
+	protected void compute() {
+		if (hi - lo > 1) {
+			final int mid = (lo + hi) >>> 1;
+			invokeAll(new HeightTask(regions, lo, mid), new HeightTask(regions, mid, hi));
+			return;
+		}
+		regions[lo].buildHeights();
+	}
+}
@@ -53,6 +53,19 @@ public class VAOwithoutBuffer implements Disposable
 		this.count = count;
 	}
 	
+	/** Make a new store of the count of floats, the old one is orphaned. Nothing is uploaded, see {@link #uploadVertices(ByteBuffer, int, int)}. */
+	public void allocate(final int count) {
+		gl30.glBindBuffer(GL30.GL_ARRAY_BUFFER, bufferHandle);
+		gl30.glBufferData(GL30.GL_ARRAY_BUFFER, count*Float.BYTES, null, GL30.GL_DYNAMIC_DRAW);
+		this.count = count;
+	}
+	
+	/** Upload the count of floats from the buffer's position into the store at the float offset. The buffer must be
+	 * limited to the floats, and the store bound by {@link #allocate(int)}. */
+	public void uploadVertices(final ByteBuffer buffer, final int offset, final int count) {
+		gl30.glBufferSubData(GL30.GL_ARRAY_BUFFER, offset*Float.BYTES, count*Float.BYTES, buffer);
+	}
+	
 	public void unbind() {
 		gl30.glBindVertexArray(0);
 	}
@@ -12,12 +12,12 @@ class WorldFilter extends FileFilter {
 	public boolean accept(File f) {
 		if (f.isDirectory()) return true;
 		String name = StringUtils.fastLowerCase(f.getName());
-		return name.endsWith(".arcubit");
+		return name.endsWith(".arcubit") || name.endsWith(".mclone");
 	}
 
 	@Override
 	public String getDescription() {
-		return "Arcubit (*.arcubit)";
+		return "Arcubit (*.arcubit, *.mclone)";
 	}
 
 }
@@ -1,26 +1,150 @@
 package com.andedit.arcubit.particles;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
 import com.andedit.arcubit.particles.bits.Fragment;
 import com.andedit.arcubit.particles.bits.Particle;
+import com.andedit.arcubit.util.NewInstance;
 import com.badlogic.gdx.utils.ArrayMap;
-import com.badlogic.gdx.utils.Pool;
 
-/** Particle pool. */
-public class BitPools 
+/** Particle pool. Every thread has its own batch of free particles for each type, so obtain and free never lock. A thread
+ * that frees more than it obtains, like the simulation workers, hands full batches of {@link #batchSize} particles to
+ * the threads that spawn them through a lock-free queue. That is one CAS per batch instead of a monitor per particle. */
+public class BitPools
 {
-	private static final ArrayMap<Class<?>, Pool<Particle>> pools;
-	
+	/** Particles per handed batch. */
+	public static final int batchSize = 256;
+
+	/** The particle types. Read-only after the static initializer. */
+	private static final ArrayMap<Class<?>, Type> types;
+
+	// Stats, shared by every thread. Nothing holds the locals of a thread, so they go with the thread. The obtains and
+	// frees are counted by the thread and added here once per batch, so they lag by less than a batch per thread.
+	private static final LongAdder threads = new LongAdder();
+	private static final LongAdder obtains = new LongAdder(), frees = new LongAdder(), allocs = new LongAdder();
+	private static final LongAdder handed = new LongAdder(), taken = new LongAdder();
+
+	private static final ThreadLocal<Local[]> locals = new ThreadLocal<Local[]>() {
+		@Override
+		protected Local[] initialValue() {
+			final Local[] array = new Local[types.size];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = new Local(types.getValueAt(i));
+			}
+			threads.increment();
+			return array;
+		}
+	};
+
 	static {
-		pools = new ArrayMap<Class<?>, Pool<Particle>>();
-		Fragment.intsPool(pools);
+		final ArrayMap<Class<?>, NewInstance<Particle>> factories = new ArrayMap<Class<?>, NewInstance<Particle>>();
+		Fragment.intsPool(factories);
+
+		types = new ArrayMap<Class<?>, Type>(factories.size);
+		for (int i = 0; i < factories.size; i++) {
+			types.put(factories.getKeyAt(i), new Type(i, factories.getValueAt(i)));
+		}
 	}
-	
+
 	@SuppressWarnings("unchecked")
-	public static synchronized <T> T obtain(Class<T> type) {
-		return (T)pools.get(type).obtain();
+	public static <T> T obtain(Class<T> type) {
+		return (T)locals.get()[types.get(type).id].obtain();
+	}
+
+	public static void free(Particle particle) {
+		locals.get()[types.get(particle.getClass()).id].free(particle);
+	}
+
+	/** Reset the stats. The counts made while it resets may be kept or lost. */
+	public static void resetStats() {
+		obtains.reset();
+		frees.reset();
+		allocs.reset();
+		handed.reset();
+		taken.reset();
+	}
+
+	/** Allocation and contention report of all threads. Not a snapshot while particles are running, each count is read
+	 * on its own. */
+	public static String getStats() {
+		final long obtains = BitPools.obtains.sum(), frees = BitPools.frees.sum(), allocs = BitPools.allocs.sum();
+		final long handed = BitPools.handed.sum(), taken = BitPools.taken.sum();
+		final long shared = handed + taken;
+		final StringBuilder build = new StringBuilder(160);
+		build.append("threads seen: ").append(threads.sum());
+		build.append(", obtains: ").append(obtains);
+		build.append(", frees: ").append(frees);
+		build.append(", allocations: ").append(allocs);
+		build.append(", batches handed/taken: ").append(handed).append('/').append(taken);
+		build.append(", shared ops per particle: ");
+		build.append(obtains+frees == 0 ? 0f : (float)shared/(obtains+frees));
+		return build.toString();
+	}
+
+	/** A particle type, shared by every thread. */
+	private static final class Type
+	{
+		final int id;
+		final NewInstance<Particle> factory;
+		/** Full batches freed by one thread and waiting for another. */
+		final ConcurrentLinkedQueue<Particle[]> full  = new ConcurrentLinkedQueue<Particle[]>();
+		/** Empty batches to reuse, so handing batches around does not make garbage. */
+		final ConcurrentLinkedQueue<Particle[]> empty = new ConcurrentLinkedQueue<Particle[]>();
+
+		Type(int id, NewInstance<Particle> factory) {
+			this.id = id;
+			this.factory = factory;
+		}
 	}
-	
-	public static synchronized void free(Particle particle) {
-		pools.get(particle.getClass()).free(particle);
+
+	/** A particle type of one thread. */
+	private static final class Local
+	{
+		final Type type;
+		Particle[] batch = new Particle[batchSize];
+		int count;
+		/** Obtains and frees not yet added to the stats. */
+		int obtained, freed;
+
+		Local(Type type) {
+			this.type = type;
+		}
+
+		Particle obtain() {
+			if (++obtained == batchSize) {
+				obtains.add(obtained);
+				obtained = 0;
+			}
+			if (count == 0) {
+				final Particle[] full = type.full.poll();
+				if (full == null) {
+					allocs.increment();
+					return type.factory.newObject();
+				}
+				type.empty.offer(batch);
+				batch = full;
+				count = batchSize;
+				taken.increment();
+			}
+			final Particle particle = batch[--count];
+			batch[count] = null;
+			return particle;
+		}
+
+		void free(Particle particle) {
+			if (++freed == batchSize) {
+				frees.add(freed);
+				freed = 0;
+			}
+			batch[count++] = particle;
+			if (count == batchSize) {
+				type.full.offer(batch);
+				final Particle[] empty = type.empty.poll();
+				batch = empty == null ? new Particle[batchSize] : empty;
+				count = 0;
+				handed.increment();
+			}
+		}
 	}
 }
@@ -0,0 +1,58 @@
+package com.andedit.arcubit.particles;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+
+/** Particle level of detail. Scales the spawn counts by the distance to the camera and the global budget, and picks the
+ * update stride of the particles by their distance. */
+public class ParticleLod
+{
+	/** Particles closer than this are updated every tick and spawned in full. */
+	public float near = 48f;
+	/** Particles further than this are updated every {@link #farStride} ticks. */
+	public float far = 128f;
+	/** Not emitted further than this. */
+	public float cull = 500f;
+	/** Update stride between near and far. */
+	public int midStride = 2;
+	/** Update stride beyond far. */
+	public int farStride = 4;
+	/** The lowest spawn scale of far away effects. */
+	public float minScale = 0.05f;
+	/** The budget starts to cut the spawns once this much of it is used. */
+	public float budgetSoft = 0.5f;
+	/** The global particle budget. */
+	public final int budget;
+
+	// The camera position, written by the render thread. Read by any spawning thread.
+	private volatile float camX, camY, camZ;
+
+	public ParticleLod(int budget) {
+		this.budget = budget;
+	}
+
+	public void setCamera(Vector3 pos) {
+		camX = pos.x;
+		camY = pos.y;
+		camZ = pos.z;
+	}
+
+	/** Scale the spawn count of an effect at the position. Can be called from any thread. */
+	public int spawnCount(int count, Vector3 pos, int size) {
+		final float x = pos.x-camX, y = pos.y-camY, z = pos.z-camZ;
+		final float dst = (float)Math.sqrt(x*x + y*y + z*z);
+		float scale = dst <= near ? 1f : Math.max(near/dst, minScale);
+
+		final float load = size/(float)budget;
+		if (load > budgetSoft) {
+			scale *= Math.max(0f, (1f-load)/(1f-budgetSoft));
+		}
+		return MathUtils.round(count*scale);
+	}
+
+	/** The update stride of a particle by the square distance to the camera. */
+	public int stride(float dst2) {
+		if (dst2 < near*near) return 1;
+		return dst2 < far*far ? midStride : farStride;
+	}
+}
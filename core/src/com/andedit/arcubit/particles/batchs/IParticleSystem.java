@@ -1,6 +1,7 @@
 package com.andedit.arcubit.particles.batchs;
 
 import com.andedit.arcubit.particles.bits.Particle;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Disposable;
 
 /** The particle system interface. */
@@ -8,8 +9,12 @@ public interface IParticleSystem extends Disposable
 {
 	/** Update and render the particles. */
 	public void render();
-	/** Add new particle to this system. */
+	/** Add new particle to this system. Can be called from any thread. */
 	public void add(Particle part);
 	/** Get the total particles. */
 	public int getSize();
+	/** Scale the particle count of an effect at the position by the level of detail. Can be called from any thread. */
+	public default int spawnCount(int count, Vector3 pos) {
+		return count;
+	}
 }
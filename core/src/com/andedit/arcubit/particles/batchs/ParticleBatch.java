@@ -12,7 +12,6 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.VertexAttribute;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.VertexAttributes.Usage;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.IndexData;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.graphics.glutils.VertexArray;
@@ -124,35 +123,33 @@ public class ParticleBatch implements IParticleRenderer
 		mat.scl(0.25f);
 		mat.rotateTowardDirection(tmp.set(cam.position).sub(particle.pos), cam.up); // Face the particle toward the camera.
 		
-		final TextureRegion reg = particle.region;
-		
 		tmp.set(-1f, -1f, 0f).mul(mat);
 		verts[i]    = tmp.x;
 		verts[i+1]  = tmp.y;
 		verts[i+2]  = tmp.z;
-		verts[i+3]  = reg.getU2();
-		verts[i+4]  = reg.getV2();
+		verts[i+3]  = particle.u2;
+		verts[i+4]  = particle.v2;
 
 		tmp.set(-1f, 1f, 0f).mul(mat);
 		verts[i+5]  = tmp.x;
 		verts[i+6]  = tmp.y;
 		verts[i+7]  = tmp.z;
-		verts[i+8]  = reg.getU2();
-		verts[i+9]  = reg.getV();
+		verts[i+8]  = particle.u2;
+		verts[i+9]  = particle.v;
 
 		tmp.set(1f, 1f, 0f).mul(mat);
 		verts[i+10] = tmp.x;
 		verts[i+11] = tmp.y;
 		verts[i+12] = tmp.z;
-		verts[i+13] = reg.getU();
-		verts[i+14] = reg.getV();
+		verts[i+13] = particle.u;
+		verts[i+14] = particle.v;
 
 		tmp.set(1f, -1f, 0f).mul(mat);
 		verts[i+15] = tmp.x;
 		verts[i+16] = tmp.y;
 		verts[i+17] = tmp.z;
-		verts[i+18] = reg.getU();
-		verts[i+19] = reg.getV2();
+		verts[i+18] = particle.u;
+		verts[i+19] = particle.v2;
 		this.idx = i + 20;
 	}
 	
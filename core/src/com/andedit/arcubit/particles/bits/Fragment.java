@@ -1,35 +1,42 @@
 package com.andedit.arcubit.particles.bits;
 
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.andedit.arcubit.util.NewInstance;
 import com.andedit.arcubit.world.World;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.ArrayMap;
-import com.badlogic.gdx.utils.Pool;
 
 /** Test particle. */
 public class Fragment extends Particle 
 {
-	public static void intsPool(ArrayMap<Class<?>, Pool<Particle>> pools) {
-		pools.put(Fragment.class, new Pool<Particle>() { @Override
-			protected Particle newObject() {
+	public static void intsPool(ArrayMap<Class<?>, NewInstance<Particle>> pools) {
+		pools.put(Fragment.class, new NewInstance<Particle>() { @Override
+			public Particle newObject() {
 				return new Fragment();
 			}
 		});
 	}
 	
-	private static final Vector2 tmp2 = new Vector2();
-	
 	private final Vector3 vel = new Vector3();
 	private float deathY;
 	
+	/** Thread-safe, so fragments can be spawned from any thread. */
 	public Fragment ints(Vector3 pos, TextureRegion side, float power) {
+		return ints(pos, side, power, ThreadLocalRandom.current());
+	}
+	
+	/** Initialize with the given random, for reproducible fragments. */
+	public Fragment ints(Vector3 pos, TextureRegion side, float power, Random rand) {
+		final float angle = rand.nextFloat()*MathUtils.PI2;
+		final float speed = rand.nextFloat()*0.25f*power;
 		this.pos.set(pos);
 		deathY = pos.y-1f;
-		tmp2.setToRandomDirection().scl(MathUtils.random(0.25f*power));
-		vel.set(tmp2.x, (0.5f+MathUtils.random(0.4f))*power, tmp2.y);
-		region.setRegion(side);
+		vel.set(MathUtils.cos(angle)*speed, (0.5f+rand.nextFloat()*0.4f)*power, MathUtils.sin(angle)*speed);
+		setRegion(side);
 		isDead = false;
 		return this;
 	}
@@ -43,6 +50,19 @@ public class Fragment extends Particle
 		vel.y -= 0.01f;
 		pos.add(vel);
 	}
+
+	@Override
+	public void update(World world, int ticks) {
+		if (deathY > pos.y) {
+			isDead = true;
+			return;
+		}
+		// Sum of the ticks, the velocity drops by 0.01 before each move.
+		pos.x += vel.x*ticks;
+		pos.z += vel.z*ticks;
+		pos.y += vel.y*ticks - 0.01f*(ticks*(ticks+1)/2);
+		vel.y -= 0.01f*ticks;
+	}
 	
 	public static class FragmentInfo implements PartInfo<Fragment> 
 	{
@@ -8,11 +8,26 @@ import com.badlogic.gdx.math.Vector3;
 public abstract class Particle 
 {
 	public final Vector3 pos = new Vector3();
-	public final TextureRegion region = new TextureRegion();
+	/** Texture coordinates of the particle region. Plain floats, so particles don't need a texture. */
+	public float u, v, u2, v2;
 	public boolean isDead = false;
 	
 	public abstract void update(World world);
 	
+	public void setRegion(TextureRegion region) {
+		u  = region.getU();
+		v  = region.getV();
+		u2 = region.getU2();
+		v2 = region.getV2();
+	}
+	
+	/** Update by the number of ticks at once. Particles that can step in closed form should override it. */
+	public void update(World world, int ticks) {
+		for (int i = 0; i < ticks && !isDead; i++) {
+			update(world);
+		}
+	}
+	
 	public static interface PartInfo<Part extends Particle> {
 		public Part ints(Part part);
 	}
@@ -8,7 +8,6 @@ import com.andedit.arcubit.particles.bits.Particle;
 import com.andedit.arcubit.util.VolatileArray;
 import com.andedit.arcubit.util.threads.AsyncThreaded;
 import com.andedit.arcubit.world.World;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.async.AsyncResult;
@@ -79,16 +78,15 @@ class AsyncParticle extends AsyncThreaded<ArrayBuffer>
 			flush();
 		
 		final Vector3 pos = particle.pos;
-		final TextureRegion reg = particle.region;
 		
 		final int i = idx;
 		verts[i]    = pos.x;
 		verts[i+1]  = pos.y;
 		verts[i+2]  = pos.z;
-		verts[i+3]  = reg.getU();
-		verts[i+4]  = reg.getV();
-		verts[i+5]  = reg.getU2();
-		verts[i+6]  = reg.getV2();
+		verts[i+3]  = particle.u;
+		verts[i+4]  = particle.v;
+		verts[i+5]  = particle.u2;
+		verts[i+6]  = particle.v2;
 		this.idx = i + 7;
 	}
 	
@@ -0,0 +1,50 @@
+package com.andedit.arcubit.particles.threads;
+
+import static com.andedit.arcubit.particles.batchs.ParticleGeometry.*;
+import static com.andedit.arcubit.particles.threads.ParticleSimulation.sliceSize;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import com.badlogic.gdx.utils.BufferUtils;
+
+/** The output of a single step, [x,y,z,u,v,u2,v2] per particle. Each slice starts at the vertex of slice*{@link
+ * ParticleSimulation#sliceSize}. Written by the workers as the back frame, read-only once it has been swapped to the front. */
+public final class ParticleFrame
+{
+	private final ByteBuffer buffer;
+	final FloatBuffer verts;
+
+	/** Visible particles of each slice. */
+	final int[] counts;
+	/** Slices used. */
+	int slices;
+	/** Total live particles. */
+	int size;
+
+	ParticleFrame(int maxSlices) {
+		buffer = BufferUtils.newByteBuffer(maxSlices*sliceSize*byteSize);
+		verts = buffer.asFloatBuffer();
+		counts = new int[maxSlices];
+	}
+
+	/** The vertex buffer, limited to the used slices. */
+	public ByteBuffer getBuffer() {
+		buffer.position(0);
+		buffer.limit(slices*sliceSize*byteSize);
+		return buffer;
+	}
+
+	public int getSlices() {
+		return slices;
+	}
+
+	/** Visible particles of the slice. */
+	public int getCount(int slice) {
+		return counts[slice];
+	}
+
+	public int getSize() {
+		return size;
+	}
+}
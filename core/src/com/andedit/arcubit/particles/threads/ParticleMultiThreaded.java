@@ -3,91 +3,76 @@ package com.andedit.arcubit.particles.threads;
 import com.andedit.arcubit.particles.batchs.IParticleSystem;
 import com.andedit.arcubit.particles.bits.Particle;
 import com.andedit.arcubit.util.Camera;
-import com.badlogic.gdx.utils.Array;
+import com.andedit.arcubit.world.World;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector3;
 
-public class ParticleMultiThreaded implements IParticleSystem 
+public class ParticleMultiThreaded implements IParticleSystem
 {
 	/** Max Particles or Vertices size. */
 	public static final int maxParticles = 3000000;
 	/** Number of threads it using. */
-	public static final int thraedsNum = 1;
-	/** Total vertex/particle size for each threads. */
-	public static final int vertexSize = maxParticles/thraedsNum;
-	/** Number of buffers for each threads. */
-	public static final int buffersArrays = 300;
-	
-	private final AsyncMultiParticle async;
-	
-	private final Array<Particle> newParts = new Array<Particle>(64);
+	public static final int threadsNum = Runtime.getRuntime().availableProcessors();
+	/** Simulation ticks per second, independent of the frame rate. */
+	public static final int tickRate = 60;
+	/** Max ticks a single step can catch up, the rest is dropped. */
+	public static final int maxTicks = 4;
 	
+	/** Seconds of simulation time not yet stepped. */
+	private float tickTime;
+
+	private final ParticleSimulation sim;
+
 	private final MultiParticleDataGeomety batch;
+	private final Camera cam;
 
 	public ParticleMultiThreaded(Camera cam) {
-		async = new AsyncMultiParticle(thraedsNum, "Hyper-Particles");
-		batch = new MultiParticleDataGeomety(cam);
+		this.cam = cam;
+		sim = new ParticleSimulation(World.world, maxParticles, threadsNum);
+		batch = new MultiParticleDataGeomety(cam, sim.maxSlices);
 	}
 
 	@Override
 	public void render() {
-		if (async.isTaskRunning()) {
-			Array<ParticleTask> array = async.getFinishedTasks();
-			if (array.notEmpty()) {
-				
-				batch.update(array); // update the vertices.
-				
-				for (int i = 0; i < array.size; i++) {
-					ParticleTask task = array.get(i);
-					task.cleanDeadParts();
-					if (task.needUpdate) {
-						if (newParts.notEmpty()) {
-							final int size = Math.min(task.getReqiureSize(), newParts.size);
-							for (int j = 0; j < size; j++) {
-								task.newParts.add(newParts.pop());
-							}
-						}
-						async.start(task);
-					} else {
-						if (newParts.notEmpty()) {
-							final int size = Math.min(task.getReqiureSize(), newParts.size);
-							for (int j = 0; j < size; j++) {
-								task.newParts.add(newParts.pop());
-							}
-							async.start(task);
-						} else {
-							async.putDeadTask(task);
-						}
-					}
+		sim.lod.setCamera(cam.position);
+		tickTime = Math.min(tickTime+Gdx.graphics.getDeltaTime(), maxTicks/(float)tickRate);
+		if (sim.isDone()) {
+			final ParticleFrame front = sim.finish();
+			final int ticks = (int)(tickTime*tickRate);
+			if (ticks != 0) {
+				tickTime -= ticks/(float)tickRate;
+				if (sim.needUpdate()) {
+					sim.setView(cam);
+					sim.start(ticks); // the step writes the back frame.
 				}
 			}
-		}
-		if (newParts.notEmpty()) {
-			ParticleTask task = async.getNewTask();
-			if (task != null) {
-				final int size = Math.min(task.getReqiureSize(), newParts.size);
-				for (int j = 0; j < size; j++) {
-					task.newParts.add(newParts.pop());
-				}
-				async.start(task);
+			if (front != null) {
+				batch.update(front); // update the vertices.
 			}
 		}
-		
+
 		// render the particles
 		batch.render();
 	}
 
 	@Override
 	public void add(Particle part) {
-		newParts.add(part);
+		sim.add(part);
+	}
+
+	@Override
+	public int spawnCount(int count, Vector3 pos) {
+		return sim.lod.spawnCount(count, pos, sim.getSize());
 	}
 
 	@Override
 	public int getSize() {
-		return async.getSize();
+		return sim.getSize();
 	}
-	
+
 	@Override
 	public void dispose() {
-		async.dispose();
+		sim.dispose();
 		batch.dispose();
 	}
 }
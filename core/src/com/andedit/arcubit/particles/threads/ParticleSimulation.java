@@ -0,0 +1,185 @@
+package com.andedit.arcubit.particles.threads;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import com.andedit.arcubit.particles.BitPools;
+import com.andedit.arcubit.particles.ParticleLod;
+import com.andedit.arcubit.particles.bits.Particle;
+import com.andedit.arcubit.util.threads.MpscRingQueue;
+import com.andedit.arcubit.world.World;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.math.Plane;
+import com.badlogic.gdx.utils.Disposable;
+
+/** The particle store and its fork-join simulation. It has no GL or native state. The store is split into slices of
+ * {@link #sliceSize} particles, every slice owns the same range of vertices in the frame so the workers never write to
+ * the same memory. The step writes the back frame while the renderer reads the front frame, {@link #finish()} swaps them.
+ * Every particle is updated, but only the ones in the view are emitted into the frame. */
+public class ParticleSimulation implements Disposable
+{
+	/** Particles per partition. */
+	public static final int sliceSize = 16384;
+	/** Capacity of the spawn queue. */
+	public static final int spawnCapacity = 1<<18;
+
+	public final World world;
+	public final int maxParticles;
+	public final int maxSlices;
+	public final ParticleLod lod;
+
+	/** Particles waiting to be added to the store. */
+	private final MpscRingQueue<Particle> newParts;
+
+	private final ForkJoinPool pool;
+	private final Runnable step;
+	private ForkJoinTask<?> result;
+
+	// Store. Only touched by the workers while the step is running.
+	final Particle[] parts;
+	int size;
+	/** Ticks of the running step. */
+	int ticks;
+	/** Ticks simulated before the running step. */
+	long tick;
+	/** Live particles of each slice, for the compaction. */
+	final int[] lives;
+
+	// The view of the running step. Frustum planes as [x,y,z,d].
+	final float[] planes = new float[24];
+	float camX, camY, camZ;
+
+	/** The frames. The back frame is written by the step, the front one is owned by the renderer. */
+	private final ParticleFrame[] frames = new ParticleFrame[2];
+	/** The back frame of the running step. */
+	ParticleFrame back;
+	private int backIndex;
+
+	/** The real particles size. */
+	private volatile int realSize;
+
+	public ParticleSimulation(World world, int maxParticles, int threads) {
+		this.world = world;
+		this.maxParticles = maxParticles;
+		maxSlices = (maxParticles+sliceSize-1)/sliceSize;
+
+		lod = new ParticleLod(maxParticles);
+		parts = new Particle[maxParticles];
+		lives = new int[maxSlices];
+		newParts = new MpscRingQueue<Particle>(spawnCapacity);
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new ParticleFrame(maxSlices);
+		}
+		back = frames[0];
+
+		pool = new ForkJoinPool(threads);
+		step = new Runnable() {
+			@Override
+			public void run() {
+				step();
+			}
+		};
+	}
+
+	/** Add new particle to the spawn queue. Can be called from any thread. The particle is freed if the queue is full. */
+	public void add(Particle part) {
+		if (!newParts.offer(part)) {
+			BitPools.free(part);
+		}
+	}
+
+	/** Set the view to cull the particles against. Must not be called while the step is running. */
+	public void setView(Camera cam) {
+		final Plane[] planes = cam.frustum.planes;
+		for (int i = 0; i < planes.length; i++) {
+			final Plane plane = planes[i];
+			this.planes[i*4]   = plane.normal.x;
+			this.planes[i*4+1] = plane.normal.y;
+			this.planes[i*4+2] = plane.normal.z;
+			this.planes[i*4+3] = plane.d;
+		}
+		camX = cam.position.x;
+		camY = cam.position.y;
+		camZ = cam.position.z;
+	}
+
+	/** Submit the next step into the back frame, updating each particle by the ticks. Must not be called while the step is
+	 * running. */
+	public void start(int ticks) {
+		this.ticks = ticks;
+		result = pool.submit(step);
+	}
+
+	/** Returns true if there is anything to simulate. */
+	public boolean needUpdate() {
+		return size != 0 || !newParts.isEmpty();
+	}
+
+	/** Check the step is finished executing. Will return true even no step were submitted. */
+	public boolean isDone() {
+		return result == null ? true : result.isDone();
+	}
+
+	/** Block until the running step is finished. */
+	public void await() {
+		if (result != null) result.join();
+	}
+
+	/** Swap the frames once the step is finished. Returns the new front frame, or null if no step were finished. The front
+	 * frame is safe to read until the next finish. */
+	public ParticleFrame finish() {
+		if (result == null || !result.isDone()) return null;
+		result.join();
+		result = null;
+
+		final ParticleFrame front = back;
+		backIndex = (backIndex+1) % frames.length;
+		back = frames[backIndex];
+		return front;
+	}
+
+	/** Run a single step. Called from a worker of the pool. */
+	private void step() {
+		// Drain the spawn queue straight into the store.
+		final int size = this.size + newParts.drain(parts, this.size, maxParticles-this.size);
+		final int slices = (size+sliceSize-1)/sliceSize;
+		this.size = size;
+		if (slices != 0) {
+			new ParticleTask(this, 0, slices).invoke();
+		}
+
+		// Compact the store. The vertices stay in their slice ranges.
+		final Particle[] parts = this.parts;
+		final int[] lives = this.lives;
+		int live = 0;
+		for (int i = 0; i < slices; i++) {
+			final int from = i*sliceSize;
+			final int count = lives[i];
+			if (from != live) System.arraycopy(parts, from, parts, live, count);
+			live += count;
+		}
+		Arrays.fill(parts, live, size, null);
+
+		this.size = live;
+		tick += ticks;
+		back.slices = slices;
+		back.size = live;
+		realSize = live;
+	}
+
+	public int getSize() {
+		return realSize;
+	}
+
+	@Override
+	public void dispose() {
+		pool.shutdownNow();
+		try {
+			pool.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+}
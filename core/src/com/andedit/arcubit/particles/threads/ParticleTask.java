@@ -1,147 +1,110 @@
 package com.andedit.arcubit.particles.threads;
 
-import static com.andedit.arcubit.particles.batchs.ParticleGeometry.*;
-import static com.andedit.arcubit.particles.threads.ParticleMultiThreaded.*;
+import static com.andedit.arcubit.particles.batchs.ParticleGeometry.floatSize;
+import static com.andedit.arcubit.particles.threads.ParticleSimulation.sliceSize;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.RecursiveAction;
 
-import com.andedit.arcubit.glutils.ArrayBuffer;
 import com.andedit.arcubit.particles.BitPools;
-import com.andedit.arcubit.particles.bits.Fragment;
+import com.andedit.arcubit.particles.ParticleLod;
 import com.andedit.arcubit.particles.bits.Particle;
-import com.andedit.arcubit.util.VolatileArray;
-import com.andedit.arcubit.util.threads.TaskWorker;
 import com.andedit.arcubit.world.World;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ArrayMap;
-import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.async.AsyncExecutor;
 
-public class ParticleTask extends TaskWorker<ArrayBuffer> 
+/** Update the range of slices [lo, hi) and draw the visible particles. Splits in half until a single slice is left. */
+class ParticleTask extends RecursiveAction
 {
-	// TODO: Replace ArrayMap with ObjectMap if Particle class getting populated.
-	private final ArrayMap<Class<?>, Pool<Particle>> map = new ArrayMap<Class<?>, Pool<Particle>>();
-	
-	private void intsPools() {
-		Fragment.intsPool(map);
-	}
-	
-	private final Array<Particle> parts;
-	private final ArrayBuffer buffers;
-	
-	public final VolatileArray<Particle> newParts  = new VolatileArray<Particle>(256);
-	
-	// Vertex
-	private final int maxSize;
-	private final float[] verts;
-	private int idx;
-	
-	// Thread
-	public final int id;
-	
-	/** If the particles's array has one or more items. */
-	public volatile boolean needUpdate = false;
-	/** The real particles size. */
-	public volatile int realSize;
-	
-	public final int maxParticles;
-		
-	public ParticleTask(final int id) {
-		intsPools();
-		this.id = id;
-		maxParticles = vertexSize;
-		maxSize = (vertexSize*floatSize)/buffersArrays; // Max size/length of floats.
-		verts = new float[maxSize]; // Allocate the array of floats.
-		parts = new Array<Particle>(false, maxParticles, Particle.class);
-		buffers = ArrayBuffer.create(vertexSize*byteSize, buffersArrays);
-	}
+	private static final long serialVersionUID = 1L;
 
-	public void start(AsyncExecutor exe) {
-		buffers.size = 0;
-		result = exe.submit(this);
+	/** The radius of a particle quad, so the ones on the edge of the view are not cut. */
+	private static final float radius = 0.3f;
+
+	private final ParticleSimulation sim;
+	private final int lo, hi;
+
+	ParticleTask(ParticleSimulation sim, int lo, int hi) {
+		this.sim = sim;
+		this.lo = lo;
+		this.hi = hi;
 	}
 
 	@Override
-	public ArrayBuffer call() throws Exception {
-		final World world = World.world;
-		buffers.size = 0;
-		idx = 0;
-		//deadParts.clear();
-		
-		for (int i = 0, s = newParts.size; i < s; i++) {
-			if (parts.size >= maxParticles) {
-				break;
-			}
-			parts.add(newParts.getAndNull(i));
+	protected void compute() {
+		if (hi - lo > 1) {
+			final int mid = (lo + hi) >>> 1;
+			invokeAll(new ParticleTask(sim, lo, mid), new ParticleTask(sim, mid, hi));
+			return;
 		}
-		newParts.clear();
-		
-		realSize = parts.size;
-		final Particle[] fast = parts.items;
-		for (int i = 0, s = parts.size; i < s; ++i) {
-			final Particle p = fast[i];
-			p.update(world);
+
+		final World world = sim.world;
+		final Particle[] parts = sim.parts;
+		final ParticleFrame frame = sim.back;
+		final FloatBuffer verts = frame.verts;
+		final ParticleLod lod = sim.lod;
+		final float[] planes = sim.planes;
+		final float camX = sim.camX, camY = sim.camY, camZ = sim.camZ;
+		final float cull2 = lod.cull*lod.cull;
+		final int from = lo*sliceSize;
+		final int to = Math.min(from+sliceSize, sim.size);
+
+		// Ticks of each stride in this step. The slice index offsets the phase, so the strided slices
+		// don't all update on the same tick.
+		final int ticks = sim.ticks;
+		final long tick = sim.tick + lo;
+		final int midTicks = strided(tick, ticks, lod.midStride);
+		final int farTicks = strided(tick, ticks, lod.farStride);
+
+		// Live particles are moved to the front of the slice. Only the visible ones are emitted.
+		int live = from, emitted = from;
+		for (int i = from; i < to; i++) {
+			final Particle p = parts[i];
+			final Vector3 pos = p.pos;
+			final float x = pos.x-camX, y = pos.y-camY, z = pos.z-camZ;
+			final float dst2 = x*x + y*y + z*z;
+
+			final int stride = lod.stride(dst2);
+			final int n = stride == 1 ? ticks : stride == lod.midStride ? midTicks : farTicks;
+			if (n != 0) p.update(world, n);
 			if (p.isDead) {
-				//deadParts.add(parts.removeIndex(i--));
-				BitPools.free(parts.removeIndex(i--));
-				//parts.removeIndex(i--);
-				--s; continue;
+				BitPools.free(p);
+				continue;
+			}
+			parts[live++] = p;
+			if (dst2 < cull2 && inView(planes, pos)) {
+				draw(verts, emitted*floatSize, p);
+				emitted++;
 			}
-			draw(p);
 		}
-		
-		realSize = parts.size;
-		needUpdate = parts.notEmpty();
-		realSize = realSize;
-		needUpdate = needUpdate;
-		
-		if (idx != 0) flush();
-		return buffers;
-	}
-	
-	private void draw(Particle particle) {
-		if (idx == maxSize) 
-			flush();
-		
-		final Vector3 pos = particle.pos;
-		final TextureRegion reg = particle.region;
-		
-		final int i = idx;
-		verts[i]    = pos.x;
-		verts[i+1]  = pos.y;
-		verts[i+2]  = pos.z;
-		verts[i+3]  = reg.getU();
-		verts[i+4]  = reg.getV();
-		verts[i+5]  = reg.getU2();
-		verts[i+6]  = reg.getV2();
-		this.idx = i + 7;
-	}
-	
-	public void cleanDeadParts() {
-		/*
-		final int s = deadParts.size;
-		for (int i = 0; i < s; i++) {
-			BitPools.free(deadParts.pop());
+		for (int i = live; i < to; i++) {
+			parts[i] = null;
 		}
-		//deadParts.clear();
-		deadParts.size = 0; */
+		sim.lives[lo] = live - from;
+		frame.counts[lo] = emitted - from;
 	}
-	
-	private void flush() {
-		//buffers.setVertices(verts, idx, buffers.size++);
-		idx = 0;
-	}
-	
-	public int getSize() {
-		return realSize;
+
+	/** Ticks that a particle with the stride is advanced by in the ticks [tick, tick+ticks). It is updated once every
+	 * stride ticks, by the whole stride. */
+	private static int strided(long tick, int ticks, int stride) {
+		return (int)(Math.floorDiv(tick+ticks-1, stride) - Math.floorDiv(tick-1, stride)) * stride;
 	}
-	
-	public int getReqiureSize() {
-		return maxParticles - realSize;
+
+	/** Whether the particle is inside all the frustum planes. */
+	private static boolean inView(float[] planes, Vector3 pos) {
+		for (int i = 0; i < 24; i += 4) {
+			if (planes[i]*pos.x + planes[i+1]*pos.y + planes[i+2]*pos.z + planes[i+3] < -radius) return false;
+		}
+		return true;
 	}
-	
-	@Override
-	public void dispose() {
-		buffers.dispose();
+
+	private static void draw(FloatBuffer verts, int i, Particle particle) {
+		final Vector3 pos = particle.pos;
+		verts.put(i,   pos.x);
+		verts.put(i+1, pos.y);
+		verts.put(i+2, pos.z);
+		verts.put(i+3, particle.u);
+		verts.put(i+4, particle.v);
+		verts.put(i+5, particle.u2);
+		verts.put(i+6, particle.v2);
 	}
 }
@@ -19,12 +19,10 @@ public interface Clouds extends Disposable
 	SPEED = 0.015f,
 	FAR = 8000f; // 16000f
 	
-	public static final int SEED = MathUtils.random.nextInt();
-	
 	/** Gdx.gl.glEnable(GL20.GL_CULL_FACE) must be enable in this method */
 	public void render(Camera cam, IndexData index);
 	
-	public static float getPerlin(float x, float y) 
+	public static float getPerlin(int seed, float x, float y) 
 	{
 		final int x0 = MathUtils.floor(x);
 		final int y0 = MathUtils.floor(y);
@@ -40,8 +38,8 @@ public interface Clouds extends Disposable
 		final float xd1 = xd0 - 1f;
 		final float yd1 = yd0 - 1f;
 
-		final float xf0 = FastNoise.Lerp(GradCoord2D(SEED, x0, y0, xd0, yd0), GradCoord2D(SEED, x1, y0, xd1, yd0), xs);
-		final float xf1 = FastNoise.Lerp(GradCoord2D(SEED, x0, y1, xd0, yd1), GradCoord2D(SEED, x1, y1, xd1, yd1), xs);
+		final float xf0 = FastNoise.Lerp(GradCoord2D(seed, x0, y0, xd0, yd0), GradCoord2D(seed, x1, y0, xd1, yd0), xs);
+		final float xf1 = FastNoise.Lerp(GradCoord2D(seed, x0, y1, xd0, yd1), GradCoord2D(seed, x1, y1, xd1, yd1), xs);
 
 		return FastNoise.Lerp(xf0, xf1, ys);
 	}
@@ -38,7 +38,11 @@ public class Clouds3D implements Clouds
 	private final VertexData vertex;
 	private ShaderProgram shader;
 	
-	public Clouds3D() {
+	private final int seed;
+	
+	/** @param seed the clouds noise seed. */
+	public Clouds3D(int seed) {
+		this.seed = seed;
 		shader = new ShaderProgram(Util.getFile("shaders/clouds.vert"), Util.getFile("shaders/clouds.frag"));
 		
 		final int size = 500; // 500 quad.
@@ -78,7 +82,7 @@ public class Clouds3D implements Clouds
 			for (float z = -DIST+z1; z < DIST+z1; z++)
 			{				
 				float zFix = (float)(z*SIZE);
-				if (Clouds.getPerlin(x/SCALE, z/SCALE) > DENSE) { // 0.4f
+				if (Clouds.getPerlin(seed, x/SCALE, z/SCALE) > DENSE) { // 0.4f
 					box(xFix, HEIGHT, zFix, 3f, isAbove);
 					//rect(xFix, height, zFix, sizer);
 				}
@@ -131,6 +131,25 @@ public class FastNoise {
 		return xd * g.x + yd * g.y;
 	}
 
+	private static int Hash2D(int seed, int x, int y) {
+		int hash = seed;
+		hash ^= X_PRIME * x;
+		hash ^= Y_PRIME * y;
+
+		hash = hash * hash * hash * 60493;
+		return (hash >> 13) ^ hash;
+	}
+
+	private static int Hash3D(int seed, int x, int y, int z) {
+		int hash = seed;
+		hash ^= X_PRIME * x;
+		hash ^= Y_PRIME * y;
+		hash ^= Z_PRIME * z;
+
+		hash = hash * hash * hash * 60493;
+		return (hash >> 13) ^ hash;
+	}
+
 	private static float GradCoord3D(int seed, int x, int y, int z, float xd, float yd, float zd) {
 		int hash = seed;
 		hash ^= X_PRIME * x;
@@ -253,4 +272,142 @@ public class FastNoise {
 		return Lerp(xf0, xf1, ys);
 	}
 
+	// Bulk evaluation. Fills a grid of samples at [x0+i*step, y0+j*step, z0+k*step] into out[i + w*(j + h*k)], with the
+	// same values as the single sample methods. The gradients of a lattice cell are hashed once for every sample in it,
+	// and the inner loops are plain float math over arrays so they can be vectorized.
+
+	/** Fill a w*h grid of {@link #GetPerlinFractal(float, float)}. */
+	public void FillPerlinFractal(float[] out, float x0, float y0, int w, int h, float step) {
+		final float[] xs = new float[w], ys = new float[h];
+		for (int i = 0; i < w; i++) xs[i] = (x0 + i * step) * m_frequency;
+		for (int j = 0; j < h; j++) ys[j] = (y0 + j * step) * m_frequency;
+
+		final Axis xa = new Axis(w);
+		final int size = w * h;
+		for (int i = 0; i < size; i++) out[i] = 0;
+
+		int seed = m_seed;
+		float amp = 1;
+		for (int o = 0; o < m_octaves; o++) {
+			if (o != 0) {
+				for (int i = 0; i < w; i++) xs[i] *= m_lacunarity;
+				for (int j = 0; j < h; j++) ys[j] *= m_lacunarity;
+				amp *= m_gain;
+			}
+			xa.set(xs);
+			AddPerlin(out, seed++, xa, ys, w, h, amp);
+		}
+
+		for (int i = 0; i < size; i++) out[i] *= m_fractalBounding;
+	}
+
+	/** Fill a w*h grid of {@link #GetPerlin(float, float)}. */
+	public void FillPerlin(float[] out, float x0, float y0, int w, int h, float step) {
+		final float[] xs = new float[w], ys = new float[h];
+		for (int i = 0; i < w; i++) xs[i] = (x0 + i * step) * m_frequency;
+		for (int j = 0; j < h; j++) ys[j] = (y0 + j * step) * m_frequency;
+
+		final Axis xa = new Axis(w);
+		xa.set(xs);
+		final int size = w * h;
+		for (int i = 0; i < size; i++) out[i] = 0;
+		AddPerlin(out, m_seed, xa, ys, w, h, 1);
+	}
+
+	/** Fill a w*h*d grid of {@link #GetPerlin(float, float, float)}. */
+	public void FillPerlin(float[] out, float x0, float y0, float z0, int w, int h, int d, float step) {
+		final float[] pos = new float[w];
+		for (int i = 0; i < w; i++) pos[i] = (x0 + i * step) * m_frequency;
+		final Axis xa = new Axis(w);
+		xa.set(pos);
+
+		final int seed = m_seed;
+		final int[] xc = xa.cell;
+		final float[] xd = xa.d, xq = xa.q;
+		for (int k = 0; k < d; k++) {
+			final float z = (z0 + k * step) * m_frequency;
+			final int z0c = MathUtils.floor(z), z1c = z0c + 1;
+			final float zq = InterpQuinticFunc(z - z0c);
+			final float zd0 = z - z0c, zd1 = zd0 - 1f;
+
+			for (int j = 0; j < h; j++) {
+				final float y = (y0 + j * step) * m_frequency;
+				final int y0c = MathUtils.floor(y), y1c = y0c + 1;
+				final float yq = InterpQuinticFunc(y - y0c);
+				final float yd0 = y - y0c, yd1 = yd0 - 1f;
+				final int row = w * (j + h * k);
+
+				// Runs of samples in the same lattice cell share the gradients.
+				for (int i = 0; i < w;) {
+					final int x0c = xc[i], x1c = x0c + 1;
+					final Float3 g000 = GRAD_3D[Hash3D(seed, x0c, y0c, z0c) & 15], g100 = GRAD_3D[Hash3D(seed, x1c, y0c, z0c) & 15];
+					final Float3 g010 = GRAD_3D[Hash3D(seed, x0c, y1c, z0c) & 15], g110 = GRAD_3D[Hash3D(seed, x1c, y1c, z0c) & 15];
+					final Float3 g001 = GRAD_3D[Hash3D(seed, x0c, y0c, z1c) & 15], g101 = GRAD_3D[Hash3D(seed, x1c, y0c, z1c) & 15];
+					final Float3 g011 = GRAD_3D[Hash3D(seed, x0c, y1c, z1c) & 15], g111 = GRAD_3D[Hash3D(seed, x1c, y1c, z1c) & 15];
+					int end = i + 1;
+					while (end < w && xc[end] == x0c) end++;
+
+					for (; i < end; i++) {
+						final float xd0 = xd[i], xd1 = xd0 - 1f, xs = xq[i];
+						final float xf00 = Lerp(xd0 * g000.x + yd0 * g000.y + zd0 * g000.z, xd1 * g100.x + yd0 * g100.y + zd0 * g100.z, xs);
+						final float xf10 = Lerp(xd0 * g010.x + yd1 * g010.y + zd0 * g010.z, xd1 * g110.x + yd1 * g110.y + zd0 * g110.z, xs);
+						final float xf01 = Lerp(xd0 * g001.x + yd0 * g001.y + zd1 * g001.z, xd1 * g101.x + yd0 * g101.y + zd1 * g101.z, xs);
+						final float xf11 = Lerp(xd0 * g011.x + yd1 * g011.y + zd1 * g011.z, xd1 * g111.x + yd1 * g111.y + zd1 * g111.z, xs);
+						final float yf0 = Lerp(xf00, xf10, yq);
+						final float yf1 = Lerp(xf01, xf11, yq);
+						out[row + i] = Lerp(yf0, yf1, zq);
+					}
+				}
+			}
+		}
+	}
+
+	/** Add a grid of 2D perlin at the scaled sample positions, times the amplitude. */
+	private static void AddPerlin(float[] out, int seed, Axis xa, float[] ys, int w, int h, float amp) {
+		final int[] xc = xa.cell;
+		final float[] xd = xa.d, xq = xa.q;
+		for (int j = 0; j < h; j++) {
+			final float y = ys[j];
+			final int y0c = MathUtils.floor(y), y1c = y0c + 1;
+			final float yq = InterpQuinticFunc(y - y0c);
+			final float yd0 = y - y0c, yd1 = yd0 - 1f;
+			final int row = j * w;
+
+			for (int i = 0; i < w;) {
+				final int x0c = xc[i], x1c = x0c + 1;
+				final Float2 g00 = GRAD_2D[Hash2D(seed, x0c, y0c) & 7], g10 = GRAD_2D[Hash2D(seed, x1c, y0c) & 7];
+				final Float2 g01 = GRAD_2D[Hash2D(seed, x0c, y1c) & 7], g11 = GRAD_2D[Hash2D(seed, x1c, y1c) & 7];
+				int end = i + 1;
+				while (end < w && xc[end] == x0c) end++;
+
+				for (; i < end; i++) {
+					final float xd0 = xd[i], xd1 = xd0 - 1f, xs = xq[i];
+					final float xf0 = Lerp(xd0 * g00.x + yd0 * g00.y, xd1 * g10.x + yd0 * g10.y, xs);
+					final float xf1 = Lerp(xd0 * g01.x + yd1 * g01.y, xd1 * g11.x + yd1 * g11.y, xs);
+					out[row + i] += Lerp(xf0, xf1, yq) * amp;
+				}
+			}
+		}
+	}
+
+	/** The lattice cells, offsets and fades of the samples along an axis. */
+	private static final class Axis {
+		final int[] cell;
+		final float[] d, q;
+
+		Axis(int size) {
+			cell = new int[size];
+			d = new float[size];
+			q = new float[size];
+		}
+
+		void set(float[] pos) {
+			for (int i = 0; i < pos.length; i++) {
+				final int c = MathUtils.floor(pos[i]);
+				cell[i] = c;
+				d[i] = pos[i] - c;
+				q[i] = InterpQuinticFunc(pos[i] - c);
+			}
+		}
+	}
 }
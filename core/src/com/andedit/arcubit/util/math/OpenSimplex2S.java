@@ -213,6 +213,53 @@ public class OpenSimplex2S {
 	
 	
 	
+	/*
+	 * Bulk Evaluators
+	 * Fill a grid of samples at [x0 + i*step, y0 + j*step, z0 + k*step] into out[i + w*(j + h*k)].
+	 * The orientation terms shared by a row or a column are computed once.
+	 */
+	
+	/**
+	 * Fill a w*h grid of 2D SuperSimplex noise, standard lattice orientation.
+	 */
+	public void fillNoise2(double[] out, double x0, double y0, int w, int h, double step) {
+		final double[] xs = new double[w];
+		for (int i = 0; i < w; i++) xs[i] = x0 + i * step;
+		
+		for (int j = 0; j < h; j++) {
+			final double y = y0 + j * step;
+			final int row = j * w;
+			for (int i = 0; i < w; i++) {
+				final double x = xs[i];
+				final double s = 0.366025403784439 * (x + y);
+				out[row + i] = noise2_Base(x + s, y + s);
+			}
+		}
+	}
+	
+	/**
+	 * Fill a w*h*d grid of 3D Re-oriented 8-point BCC noise, with better visual isotropy in (X, Z).
+	 * The XZ plane and the Y axis have their own steps. The rotation of a column along Y is computed once.
+	 */
+	public void fillNoise3_XZBeforeY(double[] out, double x0, double y0, double z0, int w, int h, int d, double xzStep, double yStep) {
+		final double[] yy = new double[h];
+		for (int j = 0; j < h; j++) yy[j] = (y0 + j * yStep) * 0.577350269189626;
+		
+		for (int k = 0; k < d; k++) {
+			final double z = z0 + k * xzStep;
+			for (int i = 0; i < w; i++) {
+				final double x = x0 + i * xzStep;
+				final double xz = x + z;
+				final double s2 = xz * -0.211324865405187;
+				final double xs = x + s2, zs = z + s2;
+				final double ys = xz * 0.577350269189626;
+				for (int j = 0; j < h; j++) {
+					out[i + w * (j + h * k)] = noise3_BCC(xs - yy[j], ys + yy[j], zs - yy[j]);
+				}
+			}
+		}
+	}
+	
 	/*
 	 * Utility
 	 */
@@ -0,0 +1,90 @@
+package com.andedit.arcubit.util.threads;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/** A bounded lock-free multi-producer single-consumer ring queue. Any thread can offer. Producers claim slots with a CAS on
+ * the producer index and publish them with a lazy set, only the consumer thread may drain. A drain costs a volatile get and
+ * a lazy set per item, there are no CAS on the consumer side. */
+public class MpscRingQueue<T>
+{
+	private final AtomicReferenceArray<T> buffer;
+	private final int mask;
+
+	/** Next slot to be claimed by a producer. */
+	private final AtomicLong producerIndex = new AtomicLong();
+	/** Next slot to be drained. Only written by the consumer. */
+	private final AtomicLong consumerIndex = new AtomicLong();
+
+	/** Creates a queue with the capacity rounded up to the next power of two. */
+	public MpscRingQueue(int capacity) {
+		capacity = MathUtils.nextPowerOfTwo(capacity);
+		buffer = new AtomicReferenceArray<T>(capacity);
+		mask = capacity-1;
+	}
+
+	/** Offer the value to the queue. Returns false if the queue is full. */
+	public boolean offer(T value) {
+		if (value == null) throw new IllegalArgumentException("value can't be null.");
+		final long capacity = mask+1;
+		long index;
+		do {
+			index = producerIndex.get();
+			if (index - consumerIndex.get() >= capacity) return false;
+		} while (!producerIndex.compareAndSet(index, index+1));
+		buffer.lazySet((int)index & mask, value);
+		return true;
+	}
+
+	/** Offer the values with a single claim. Returns the number of values that fit in the queue, counting from offset. */
+	public int offer(T[] values, int offset, int count) {
+		final long capacity = mask+1;
+		long index;
+		int claim;
+		do {
+			index = producerIndex.get();
+			claim = (int)Math.min(count, capacity - (index - consumerIndex.get()));
+			if (claim <= 0) return 0;
+		} while (!producerIndex.compareAndSet(index, index+claim));
+		for (int i = 0; i < claim; i++) {
+			buffer.lazySet((int)(index+i) & mask, values[offset+i]);
+		}
+		return claim;
+	}
+
+	/** Drain up to max values into the array from the offset. Returns the number of drained values. Consumer thread only.
+	 * Stops early at a slot that is claimed but not yet published, it will be drained by the next call. */
+	public int drain(T[] array, int offset, int max) {
+		final AtomicReferenceArray<T> buffer = this.buffer;
+		final int mask = this.mask;
+		final long start = consumerIndex.get();
+		final long limit = start+max;
+		long index = start;
+		while (index < limit) {
+			final int i = (int)index & mask;
+			final T value = buffer.get(i);
+			if (value == null) break;
+			buffer.lazySet(i, null);
+			array[offset++] = value;
+			index++;
+		}
+		consumerIndex.lazySet(index);
+		return (int)(index-start);
+	}
+
+	/** The approximate number of values in the queue. */
+	public int size() {
+		return (int)Math.max(0, producerIndex.get() - consumerIndex.get());
+	}
+
+	/** Returns true if the queue is approximately empty. */
+	public boolean isEmpty() {
+		return producerIndex.get() == consumerIndex.get();
+	}
+
+	public int capacity() {
+		return mask+1;
+	}
+}
@@ -1,5 +1,7 @@
 package com.andedit.arcubit.world;
 
+import java.io.IOException;
+
 import com.andedit.arcubit.block.Blocks;
 import com.andedit.arcubit.chunk.Chunk;
 import com.andedit.arcubit.chunk.ChunkRegion;
@@ -9,8 +11,13 @@ import com.andedit.arcubit.util.BlockPos;
 import com.andedit.arcubit.util.Camera;
 import com.andedit.arcubit.util.Util;
 import com.andedit.arcubit.world.gen.FlatGen;
+import com.andedit.arcubit.world.gen.GenProfiler;
+import com.andedit.arcubit.world.gen.RegionGen;
+import com.andedit.arcubit.world.gen.RegionLoader;
+import com.andedit.arcubit.world.save.RegionFile;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 public class World implements Disposable
 {
@@ -19,8 +26,21 @@ public class World implements Disposable
 	public static final int defaultSize = 64; // 64
 	public static final int LENGHT = defaultSize*Chunk.SIZE;
 	public static final int CENTER = LENGHT/2;
+	/** Regions around the center generated before the world opens. */
+	public static final int spawnRadius = 3;
+	
+	/** The world seed. The generated world is the same for the same seed. */
+	public final long seed;
+	/** The {@link RegionGen} id, saved with the world. */
+	public final int genId;
 	
+	/** The regions, null until they are generated or while evicted. */
 	public final ChunkRegion[][] regions;
+	/** The saved regions not in memory, left in the save when it's opened or dropped by the residency of the loader, to
+	 * be read back from the save. */
+	public final boolean[][] evicted;
+	/** Generates the regions around the camera, null if the world is not generated. */
+	public final RegionLoader loader;
 	
 	private WorldRenderer render;
 	public IParticleSystem parts;
@@ -28,28 +48,64 @@ public class World implements Disposable
 	public final BlockEdit editable = new BlockEdit(this);
 	
 	public World(boolean gen) {
+		this(gen, MathUtils.random.nextLong());
+	}
+	
+	public World(boolean gen, long seed) {
+		this(seed, gen ? new FlatGen(seed) : null);
+	}
+	
+	/** @param gen generates the regions around the camera, null for an empty world. */
+	public World(long seed, RegionGen gen) {
+		this(seed, gen, null);
+	}
+	
+	/** @param gen generates the regions around the camera and the regions missing from the save, null for an empty world.
+	 * @param save the saved regions to read before the generation, null for a new world. With a generator only the
+	 * regions the spawn generation reaches are read, the other ready ones are left evicted for the
+	 * {@link RegionLoader#residency} to read on demand. Without, all of them are read. */
+	public World(long seed, RegionGen gen, RegionFile save) {
 		world = this;
+		this.seed = seed;
+		genId = gen != null ? gen.getId() : save != null ? save.gen : RegionGen.FLAT;
 		regions = new ChunkRegion[defaultSize][defaultSize];
-		for (int x = 0; x < defaultSize; x++)
-		for (int z = 0; z < defaultSize; z++) {
-			regions[x][z] = new ChunkRegion(this, x, z);
+		evicted = new boolean[defaultSize][defaultSize];
+		loader = gen != null ? new RegionLoader(this, gen, spawnRadius) : null;
+		if (save != null) {
+			try {
+				if (loader != null) {
+					save.readAround(this, CENTER>>4, CENTER>>4, loader.reach(spawnRadius));
+				} else {
+					save.readAll(this);
+				}
+			} catch (IOException e) {
+				if (loader != null) loader.dispose();
+				throw new GdxRuntimeException("Could not read the save.", e);
+			}
+			for (int x = 0; x < defaultSize; x++)
+			for (int z = 0; z < defaultSize; z++) {
+				if (regions[x][z] == null && save.has(x, z)) evicted[x][z] = true;
+			}
 		}
-		if (gen) {
-			new FlatGen().gen(this);
-			/* TODO: height lighting disabled.
+		if (gen != null) {
+			final long time = System.nanoTime();
+			loader.genNow(CENTER>>4, CENTER>>4, spawnRadius);
+			if (GenProfiler.enabled) {
+				Util.log(World.class, "Spawn generated in " + (System.nanoTime()-time)/1000000 + " ms.\n" + GenProfiler.report());
+			}
+		} else {
 			for (int x = 0; x < defaultSize; x++)
-			{
-				for (int z = 0; z < defaultSize; z++)
-				{
-					regions[x][z].reLighting();;
-				}
-			} */
+			for (int z = 0; z < defaultSize; z++) {
+				if (regions[x][z] != null) continue;
+				regions[x][z] = new ChunkRegion(this, x, z);
+				regions[x][z].state = ChunkRegion.READY;
+			}
 		}
-		
 	}
 	
 	public void intsRender(Camera cam, int maxDis) {
 		render = new WorldRenderer(this, maxDis);
+		if (loader != null) loader.radius = maxDis;
 		parts = new ParticleMultiThreaded(cam);
 	}
 	
@@ -91,9 +147,10 @@ public class World implements Disposable
 		setBlock(pos.x, pos.y, pos.z, block);
 	}
 
-	public short getLight(int x, int z) {
+	/** The height of the top solid block of the column, -1 if there is none or the region is missing. */
+	public int getHeight(int x, int z) {
 		ChunkRegion region = getChunkRegion(x>>4, z>>4);
-		return region == null ? 0 : region.getLight(x, z);
+		return region == null ? -1 : region.getHeight(x, z);
 	}
 	
 	public Chunk getChunk(int x, int y, int z) {
@@ -107,6 +164,6 @@ public class World implements Disposable
 	
 	@Override
 	public void dispose() {
-		Util.disposes(render, parts);
+		Util.disposes(render, parts, loader);
 	}
 }
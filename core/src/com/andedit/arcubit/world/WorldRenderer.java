@@ -17,6 +17,7 @@ import com.andedit.arcubit.util.Shaders;
 import com.andedit.arcubit.util.Util;
 import com.andedit.arcubit.util.VolatileFixedArray;
 import com.andedit.arcubit.util.math.FrustUtil;
+import com.andedit.arcubit.world.gen.Seeds;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.GL20;
@@ -82,7 +83,7 @@ public final class WorldRenderer implements Disposable
 		}
 		indices.setIndices(index, 0, len);
 		
-		clouds = new Clouds3D();
+		clouds = new Clouds3D((int)Seeds.mix(world.seed, Seeds.CLOUDS));
 	}
 	
 	private final GridPoint3 lastPos  = new GridPoint3();
@@ -98,6 +99,11 @@ public final class WorldRenderer implements Disposable
 		
 		final Plane[] planes = cam.frustum.planes;
 		
+		// Regions made ready are checked for the new chunks.
+		if (world.loader != null && world.loader.update(chunkPos.x, chunkPos.z)) {
+			forceCheck = true;
+		}
+		
 		if (loader.isDone()) {
 		//if (true) {
 			if (Gdx.input.isKeyJustPressed(Keys.L)) {
@@ -127,8 +133,9 @@ public final class WorldRenderer implements Disposable
 				}
 			}
 			
-			if (lastPos.x != chunkPos.x || lastPos.z != chunkPos.z) {
+			if (lastPos.x != chunkPos.x || lastPos.z != chunkPos.z || forceCheck) {
 				lastPos.set(chunkPos);
+				forceCheck = false;
 				for (Chunk chunk : updateQueue)
 					chunk.isNewChunk = true;
 				updateQueue.clear();
@@ -214,7 +221,7 @@ public final class WorldRenderer implements Disposable
 			for (int z = -renderSize; z < renderSize+1; z++)
 			{
 				ChunkRegion region = world.getChunkRegion(x+chunkPos.x, z+chunkPos.z);
-				if (region == null) continue;
+				if (region == null || !region.isReady()) continue; // pending, checked again once ready.
 				for (int i = ChunkRegion.LENGTH-1; i > -1; i--)	{
 					//if (handleChunk(region.chunks[i])) return;
 					final Chunk chunk = region.chunks[i];
@@ -0,0 +1,79 @@
+package com.andedit.arcubit.world.gen;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+
+/** Samples a 3D density field of a region on a coarse lattice and interpolates the blocks in between. The lattice of a
+ * region is evaluated once by {@link #load(int, int)} and shared by all of its columns. The steps are the quality knob:
+ * 1 and 1 samples every block, the bigger the steps the faster and the smoother. A sampler is not thread safe, use one
+ * per region or per thread. */
+public class DensitySampler
+{
+	/** A 3D density field in block coordinates. */
+	public interface Field {
+		double get(double x, double y, double z);
+
+		/** Fill out[x + nx*(y + ny*z)] with the grid of nx*ny*nz points from x0, y0, z0, spaced by the steps. Override
+		 * it with the bulk fill of the noise, by default it calls {@link #get(double, double, double)} per point. */
+		public default void fill(double[] out, double x0, double y0, double z0, int nx, int ny, int nz, double xzStep, double yStep) {
+			for (int z = 0; z < nz; z++)
+			for (int y = 0; y < ny; y++)
+			for (int x = 0; x < nx; x++) {
+				out[x + nx*(y + ny*z)] = get(x0 + x*xzStep, y0 + y*yStep, z0 + z*xzStep);
+			}
+		}
+	}
+
+	public final Field field;
+	/** Blocks between the lattice points on X and Z, and on Y. */
+	public final int xzStep, yStep;
+
+	/** Lattice points per axis. */
+	private final int xzSize, ySize;
+	/** The lattice of the loaded region, [z][y][x] flatten as filled by {@link Field#fill}. */
+	private final double[] lattice;
+	/** The bilinear lattice column of the current block column. */
+	private final double[] column;
+
+	/** @param xzStep must divide {@link Chunk#SIZE}.
+	 * @param yStep must divide {@link ChunkRegion#HEIGHT}. */
+	public DensitySampler(Field field, int xzStep, int yStep) {
+		if (xzStep < 1 || Chunk.SIZE % xzStep != 0) throw new IllegalArgumentException("xzStep must divide " + Chunk.SIZE + ": " + xzStep);
+		if (yStep < 1 || ChunkRegion.HEIGHT % yStep != 0) throw new IllegalArgumentException("yStep must divide " + ChunkRegion.HEIGHT + ": " + yStep);
+		this.field = field;
+		this.xzStep = xzStep;
+		this.yStep = yStep;
+		xzSize = Chunk.SIZE/xzStep + 1;
+		ySize = ChunkRegion.HEIGHT/yStep + 1;
+		lattice = new double[xzSize*xzSize*ySize];
+		column = new double[ySize];
+	}
+
+	/** Evaluate the lattice of the region at the block offset. The points on the edges are shared with the neighbour
+	 * regions, so the regions join seamlessly. */
+	public void load(int xOffset, int zOffset) {
+		field.fill(lattice, xOffset, 0, zOffset, xzSize, ySize, xzSize, xzStep, yStep);
+	}
+
+	/** Interpolate the column at the local block position of the loaded region into out[y]. */
+	public void column(int x, int z, double[] out) {
+		final int xl = x/xzStep, zl = z/xzStep;
+		final double xt = (x%xzStep)/(double)xzStep, zt = (z%xzStep)/(double)xzStep;
+		final int c00 = xl + zl*xzSize*ySize, c10 = c00 + 1;
+		final int c01 = c00 + xzSize*ySize, c11 = c01 + 1;
+
+		final double[] lattice = this.lattice, column = this.column;
+		for (int y = 0, i = 0; y < ySize; y++, i += xzSize) {
+			final double a = lattice[c00+i] + (lattice[c10+i]-lattice[c00+i])*xt;
+			final double b = lattice[c01+i] + (lattice[c11+i]-lattice[c01+i])*xt;
+			column[y] = a + (b-a)*zt;
+		}
+
+		final double step = 1d/yStep;
+		for (int y = 0; y < ChunkRegion.HEIGHT; y++) {
+			final int yl = y/yStep;
+			final double a = column[yl];
+			out[y] = a + (column[yl+1]-a)*((y%yStep)*step);
+		}
+	}
+}
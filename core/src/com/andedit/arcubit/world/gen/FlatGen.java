@@ -1,10 +1,13 @@
 package com.andedit.arcubit.world.gen;
 
+import java.util.Random;
+
 import com.andedit.arcubit.block.Blocks;
 import com.andedit.arcubit.chunk.Chunk;
 import com.andedit.arcubit.chunk.ChunkRegion;
 import com.andedit.arcubit.util.math.FastNoise;
 import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.features.Canopies;
 import com.andedit.arcubit.world.gen.features.Lands;
 import com.andedit.arcubit.world.gen.features.OrePatch;
 import com.andedit.arcubit.world.gen.features.PlentPatch;
@@ -14,13 +17,21 @@ import com.andedit.arcubit.world.gen.structure.StrutBuilder;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.RandomXS128;
 
-public class FlatGen implements Generator 
+public class FlatGen implements Generator, RegionGen 
 {
-	private final RandomXS128 rand;
+	private final long seed;
 	private final FastNoise lands, biomes;
+	private final Canopies canopies;
+	private final Structure house, well, base, dungon;
+	private final GenStage[] stages;
 	
 	public FlatGen() {
-		rand = new RandomXS128();
+		this(MathUtils.random.nextLong());
+	}
+	
+	public FlatGen(long seed) {
+		this.seed = seed;
+		final RandomXS128 rand = Seeds.random(seed, Seeds.TERRAIN);
 		
 		lands = new FastNoise(rand.nextInt());
 		lands.SetFractalOctaves(5);
@@ -31,31 +42,69 @@ public class FlatGen implements Generator
 		biomes.SetFractalOctaves(3);
 		biomes.SetFractalGain(0.4f);
 		biomes.SetFrequency(0.02f);
+		
+		canopies = new Canopies(seed, 5);
+		
+		final StrutBuilder build = new StrutBuilder();
+		house = getHouse(build);
+		house.fillGround = true;
+		well = getWell(build);
+		base = getBase(build);
+		base.fillGround = true;
+		dungon = getDungeon(build);
+		
+		stages = new GenStage[] {
+			new GenStage("terrain", 0) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					genTerrain(region);
+				}
+			},
+			new GenStage("surface", 0) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					Lands.fastGen(region, biomes);
+				}
+			},
+			new GenStage("ores", 0) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					genOres(region, random(Seeds.REGIONS, region));
+				}
+			},
+			new GenStage("decorations", 1) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					decorate(world, region);
+				}
+			}
+		};
 	}
 	
 	@Override
 	public void gen(World world) {
-		for (int x = 0; x < World.defaultSize; x++)
-		{
-			for (int z = 0; z < World.defaultSize; z++)
-			{
-				final ChunkRegion region = world.regions[x][z];
-				genRegion(region);
-				dec(region);
-			}
-		}
-		
-		worldGen(world);
+		RegionTask.genAll(world, this);
 	}
 	
-	private void genRegion(ChunkRegion region)
+	@Override
+	public GenStage[] getStages() {
+		return stages;
+	}
+	
+	@Override
+	public int getId() {
+		return FLAT;
+	}
+	
+	private void genTerrain(ChunkRegion region)
 	{
+		final float[] lands = new float[Chunk.SIZE*Chunk.SIZE];
+		this.lands.FillPerlinFractal(lands, region.xR*Chunk.SIZE, region.zR*Chunk.SIZE, Chunk.SIZE, Chunk.SIZE, 1f);
 		for (int x = 0; x < Chunk.SIZE; x++)
 		{
-			float realX = x + (region.xR*Chunk.SIZE);
 			for (int z = 0; z < Chunk.SIZE; z++)
 			{
-				float value = lands.GetPerlinFractal(realX, z + (region.zR*Chunk.SIZE));
+				float value = lands[x + z*Chunk.SIZE];
 				value *= 38f; // 35
 				for (int y = 0; y < ChunkRegion.HEIGHT; y++)
 				{				
@@ -67,20 +116,18 @@ public class FlatGen implements Generator
 		}
 	}
 	
-	private void dec(ChunkRegion region)
+	private void genOres(ChunkRegion region, Random rand)
 	{
 		final int size = Chunk.SIZE;
 		
-		Lands.fastGen(region, biomes);
-		
 		for (int i = 0; i < 4; i++) {
-			OrePatch.create(region, 0.4f, Blocks.STONE, Blocks.GOLDORE, 2, MathUtils.random(1, 14), MathUtils.random(1, 35), MathUtils.random(1, 14));
+			OrePatch.create(region, 0.4f, Blocks.STONE, Blocks.GOLDORE, 2, 1+rand.nextInt(14), 1+rand.nextInt(35), 1+rand.nextInt(14), rand);
 		}
 		for (int i = 0; i < 6; i++) {
-			OrePatch.create(region, 0.6f, Blocks.STONE, Blocks.COPPERORE, 2, MathUtils.random(1, 14), MathUtils.random(1, 45), MathUtils.random(1, 14));
+			OrePatch.create(region, 0.6f, Blocks.STONE, Blocks.COPPERORE, 2, 1+rand.nextInt(14), 1+rand.nextInt(45), 1+rand.nextInt(14), rand);
 		}
 		for (int i = 0; i < 8; i++) {
-			OrePatch.create(region, 0.8f, Blocks.STONE, Blocks.COALORE, 2, MathUtils.random(1, 14), MathUtils.random(1, 55), MathUtils.random(1, 14));
+			OrePatch.create(region, 0.8f, Blocks.STONE, Blocks.COALORE, 2, 1+rand.nextInt(14), 1+rand.nextInt(55), 1+rand.nextInt(14), rand);
 		}
 		
 		Chunk chunk = region.chunks[0];
@@ -90,102 +137,79 @@ public class FlatGen implements Generator
 			for (int z = 0; z < size; z++)
 			{
 				chunk.blocks[x][0][z] = bedrock;
-				if (randBool(0.8f)) chunk.blocks[x][1][z] = bedrock;
-				if (randBool(0.5f)) chunk.blocks[x][2][z] = bedrock;
-				if (randBool(0.2f)) chunk.blocks[x][3][z] = bedrock;		
+				if (randBool(rand, 0.8f)) chunk.blocks[x][1][z] = bedrock;
+				if (randBool(rand, 0.5f)) chunk.blocks[x][2][z] = bedrock;
+				if (randBool(rand, 0.2f)) chunk.blocks[x][3][z] = bedrock;		
 			}
 		}
 	}
 	
-	private void worldGen(World world)
-	{		
-		final float size = World.defaultSize*World.defaultSize;
+	private void decorate(World world, ChunkRegion region)
+	{
+		final int x1 = region.xR*Chunk.SIZE;
+		final int z1 = region.zR*Chunk.SIZE;
+		final int size = Chunk.SIZE;
+		RandomXS128 rand;
 		
-		StrutBuilder build = new StrutBuilder();
-		Structure house = getHouse(build);
-		house.fillGround = true;
-		house.findGenAt(world, 0, World.CENTER, World.CENTER);
-		
-		Structure well = getWell(build);
-		int x1 = 0; //bSize/2;
-		int z1 = 0; //bSize/2;
-		int loop = floor(size*0.01f); // 0.1
-		for (int i = 0; i < loop; i++) {
-			well.findGenAt(world, -4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1, 22, 46);
+		long time = GenProfiler.start();
+		if (region.matches(World.CENTER>>4, World.CENTER>>4)) {
+			house.findGenAt(world, 0, World.CENTER, World.CENTER);
 		}
 		
-		build.begin(5, 6, 5);
-		build.set(Blocks.STONEBRICK, 0, 5, 0);
-		build.set(Blocks.STONEBRICK, 2, 5, 0);
-		build.set(Blocks.STONEBRICK, 0, 5, 2);
-		build.set(Blocks.STONEBRICK, 2, 5, 4);
-		build.set(Blocks.STONEBRICK, 4, 5, 2);
-		build.set(Blocks.STONEBRICK, 4, 5, 0);
-		build.set(Blocks.STONEBRICK, 0, 5, 4);
-		build.set(Blocks.STONEBRICK, 4, 5, 4);
-		build.fill(Blocks.STONEBRICK, 0, 0, 0, 4, 4, 4);
-		build.fill(Blocks.AIR, 1, 1, 1, 3, 3, 3);
-		build.fill(Blocks.AIR, 2, 1, 0, 2, 2, 0);
-		build.fill(Blocks.AIR, 0, 1, 2, 0, 2, 2);
-		build.fill(Blocks.AIR, 2, 1, 4, 2, 2, 4);
-		build.fill(Blocks.AIR, 4, 1, 2, 4, 2, 2);
-		build.fill(Blocks.LOG, 0, 0, 0, 0, 4, 0);
-		build.fill(Blocks.LOG, 4, 0, 0, 4, 4, 0);
-		build.fill(Blocks.LOG, 0, 0, 4, 0, 4, 4);
-		build.fill(Blocks.LOG, 4, 0, 4, 4, 4, 4);
-		Structure base = build.end();
-		base.fillGround = true;
-		
-		build.begin(7, 10, 7);
-		build.fill(Blocks.STONEBRICK, 2, 5, 2, 4, 5, 4);
-		build.fill(Blocks.STONEMOSS, 2, 6, 2, 4, 8, 4);
-		build.fill(Blocks.STONEBRICK, 0, 0, 0, 6, 4, 6);
-		build.fill(Blocks.AIR, 3, 3, 3, 3, 8, 3);
-		build.fill(Blocks.AIR, 2, 9, 2, 4, 9, 4);
-		build.fill(Blocks.AIR, 1, 1, 1, 5, 3, 5);
-		build.set(Blocks.COPPER, 1, 1, 1);
-		build.set(Blocks.COPPER, 1, 2, 1);
-		build.set(Blocks.COPPER, 1, 1, 2);
-		build.set(Blocks.GOLD, 5, 1, 5);
-		build.set(Blocks.GOLD, 4, 1, 5);
-		Structure dungon = build.end();
+		rand = random(Seeds.WELLS, region);
+		for (int i = count(rand, 0.01f); i > 0; i--) {
+			well.findGenAt(world, -4, rand.nextInt(size)+x1, rand.nextInt(size)+z1, 22, 46);
+		}
 		
-		loop = floor(size*0.01f); // 0.1
-		for (int i = 0; i < loop; i++) {
-			int x = rand.nextInt(World.LENGHT)-x1;
-			int z = rand.nextInt(World.LENGHT)-z1;
+		rand = random(Seeds.DUNGEONS, region);
+		for (int i = count(rand, 0.01f); i > 0; i--) {
+			int x = rand.nextInt(size)+x1;
+			int z = rand.nextInt(size)+z1;
 			dungon.findGenAt(world, -8, x, z, 23, 35);
 		}
 		
-		loop = floor(size*0.02f); // 0.1
-		for (int i = 0; i < loop; i++) {
-			int x = rand.nextInt(World.LENGHT)-x1;
-			int z = rand.nextInt(World.LENGHT)-z1;
+		rand = random(Seeds.BASES, region);
+		for (int i = count(rand, 0.02f); i > 0; i--) {
+			int x = rand.nextInt(size)+x1;
+			int z = rand.nextInt(size)+z1;
 			float num = biomes.GetPerlinFractal(x, z);
 			if (num < -0.48d) {
 				base.findGenAt(world, 0, x, z, 30, 70);
 			} else base.findGenAt(world, 0, x, z, 45, 70);
 		}
 		
+		GenProfiler.end("decorations/structures", time);
+		time = GenProfiler.start();
 		
-		loop = floor(size*3.2f); // 3.2f
-		for (int i = 0; i < loop; i++) {
-			PlentPatch.create(world, 0.09f, 4, rand.nextInt(5)+4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
+		rand = random(Seeds.PLANTS, region);
+		for (int i = count(rand, 3.2f); i > 0; i--) {
+			PlentPatch.create(world, 0.09f, 4, rand.nextInt(5)+4, rand.nextInt(size)+x1, rand.nextInt(size)+z1, rand);
 		}
 		
-		loop = floor(size*0.9f); // 2000
-		for (int i = 0; i < loop; i++) {
-			PlentPatch.createSrub(world, 4, rand.nextInt(5)+4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
+		rand = random(Seeds.SHRUBS, region);
+		for (int i = count(rand, 0.9f); i > 0; i--) {
+			PlentPatch.createSrub(world, 4, rand.nextInt(5)+4, rand.nextInt(size)+x1, rand.nextInt(size)+z1, rand);
 		}
 		
-		loop = floor(size*0.35f); // 0.42
-		for (int i = 0; i < loop; i++) {
-			Tree.create2(world, 6 + rand.nextInt(3), 5, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
+		GenProfiler.end("decorations/plants", time);
+		time = GenProfiler.start();
+		
+		rand = random(Seeds.TREE_SPOTS, region);
+		for (int i = count(rand, 0.35f); i > 0; i--) {
+			Tree.create(world, canopies, 6 + rand.nextInt(3), rand.nextInt(size)+x1, rand.nextInt(size)+z1);
 		}
+		GenProfiler.end("decorations/trees", time);
+	}
+	
+	/** The random stream of the feature in the region. */
+	private RandomXS128 random(int salt, ChunkRegion region) {
+		return new RandomXS128(Seeds.region(Seeds.mix(seed, salt), region.xR, region.zR));
 	}
 	
-	private static int floor(float a) {
-		return MathUtils.floor(a);
+	/** Number of features in a region for the mean per region. The fraction is rounded up by chance. */
+	static int count(Random rand, float mean) {
+		final int count = (int)mean;
+		return rand.nextFloat() < mean-count ? count+1 : count;
 	}
 	
 	static Structure getHouse(StrutBuilder build) {
@@ -209,6 +233,45 @@ public class FlatGen implements Generator
 		return build.end();
 	}
 	
+	static Structure getBase(StrutBuilder build) {
+		build.begin(5, 6, 5);
+		build.set(Blocks.STONEBRICK, 0, 5, 0);
+		build.set(Blocks.STONEBRICK, 2, 5, 0);
+		build.set(Blocks.STONEBRICK, 0, 5, 2);
+		build.set(Blocks.STONEBRICK, 2, 5, 4);
+		build.set(Blocks.STONEBRICK, 4, 5, 2);
+		build.set(Blocks.STONEBRICK, 4, 5, 0);
+		build.set(Blocks.STONEBRICK, 0, 5, 4);
+		build.set(Blocks.STONEBRICK, 4, 5, 4);
+		build.fill(Blocks.STONEBRICK, 0, 0, 0, 4, 4, 4);
+		build.fill(Blocks.AIR, 1, 1, 1, 3, 3, 3);
+		build.fill(Blocks.AIR, 2, 1, 0, 2, 2, 0);
+		build.fill(Blocks.AIR, 0, 1, 2, 0, 2, 2);
+		build.fill(Blocks.AIR, 2, 1, 4, 2, 2, 4);
+		build.fill(Blocks.AIR, 4, 1, 2, 4, 2, 2);
+		build.fill(Blocks.LOG, 0, 0, 0, 0, 4, 0);
+		build.fill(Blocks.LOG, 4, 0, 0, 4, 4, 0);
+		build.fill(Blocks.LOG, 0, 0, 4, 0, 4, 4);
+		build.fill(Blocks.LOG, 4, 0, 4, 4, 4, 4);
+		return build.end();
+	}
+	
+	static Structure getDungeon(StrutBuilder build) {
+		build.begin(7, 10, 7);
+		build.fill(Blocks.STONEBRICK, 2, 5, 2, 4, 5, 4);
+		build.fill(Blocks.STONEMOSS, 2, 6, 2, 4, 8, 4);
+		build.fill(Blocks.STONEBRICK, 0, 0, 0, 6, 4, 6);
+		build.fill(Blocks.AIR, 3, 3, 3, 3, 8, 3);
+		build.fill(Blocks.AIR, 2, 9, 2, 4, 9, 4);
+		build.fill(Blocks.AIR, 1, 1, 1, 5, 3, 5);
+		build.set(Blocks.COPPER, 1, 1, 1);
+		build.set(Blocks.COPPER, 1, 2, 1);
+		build.set(Blocks.COPPER, 1, 1, 2);
+		build.set(Blocks.GOLD, 5, 1, 5);
+		build.set(Blocks.GOLD, 4, 1, 5);
+		return build.end();
+	}
+	
 	static Structure getWell(StrutBuilder build) {
 		build.begin(4, 10, 4);
 		build.fill(Blocks.COBSTONE, 0, 8, 0, 3, 8, 3);
@@ -224,7 +287,7 @@ public class FlatGen implements Generator
 	}
 	
 	/** Returns true if a random value between 0 and 1 is less than the specified value. */
-	private boolean randBool(float chance) {
+	private static boolean randBool(Random rand, float chance) {
 		return rand.nextFloat() < chance;
 	}
 }
@@ -0,0 +1,199 @@
+package com.andedit.arcubit.world.gen;
+
+import static com.andedit.arcubit.chunk.ChunkRegion.READY;
+
+import java.util.Arrays;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.chunk.HeightTask;
+import com.andedit.arcubit.world.World;
+
+/** Runs the {@link GenStage}s of the regions around a center. A pass walks the rings from the center out and takes the
+ * next stage of every region that can run it: all the regions within the stage radius are done with the previous
+ * stages, and none of them is touched by another stage taken in the same pass. The taken stages then run in parallel.
+ * A region is ready once all the regions within the radius of the last stage are done with all the stages.
+ * <p>
+ * The adjacent regions run a stage with a radius in a fixed order, by the {@link #phase(int, int)} of the region, so
+ * the blocks they both touch come out the same whatever the camera path. A region waits for its adjacent regions of a
+ * lower phase, which can be up to {@link #drift} regions further out.
+ * <p>
+ * The rings reach as far as the stages need, for ready radius r and stage radii r0..rn the last stage runs out to
+ * r+rn+drift, the one before to r+rn+drift+rn, and so on out to the first. Not thread safe, one pass at a time. */
+public class GenPipeline
+{
+	/** The farthest a chain of the lower phase regions goes, in regions. */
+	static final int drift = 2;
+
+	private final World world;
+	private final GenStage[] stages;
+	/** The ring a stage must reach for the ready radius 0. */
+	private final int[] reach;
+
+	/** The regions touched by the stages taken in the running pass, [x*size+z]. */
+	private final boolean[] claimed = new boolean[World.defaultSize*World.defaultSize];
+	private ChunkRegion[] tasks = new ChunkRegion[64];
+
+	/** Regions made ready by the last pass. */
+	int newReady;
+
+	public GenPipeline(World world, RegionGen gen) {
+		this.world = world;
+		this.stages = gen.getStages();
+		reach = new int[stages.length];
+		// The ready check looks as far as the last stage, and every stage as far as its own radius before it.
+		int ring = stages.length == 0 ? 0 : stages[stages.length-1].radius;
+		for (int i = stages.length-1; i >= 0; i--) {
+			if (stages[i].radius != 0) ring += drift;
+			reach[i] = ring;
+			ring += stages[i].radius;
+		}
+	}
+
+	public GenStage[] getStages() {
+		return stages;
+	}
+
+	/** The farthest ring a pass of the ready radius touches. */
+	public int reach(int radius) {
+		return radius + (stages.length == 0 ? 0 : reach[0]);
+	}
+
+	/** Run the stages of every region until the area around the center is ready. */
+	public void genAll(int xCenter, int zCenter, int radius) {
+		while (pass(xCenter, zCenter, radius, Integer.MAX_VALUE) != 0);
+	}
+
+	/** Run a pass of at most the given number of stages. Returns the number of regions that changed the state. */
+	public int pass(int xCenter, int zCenter, int radius, int maxTasks) {
+		final long time = GenProfiler.start();
+		final int last = stages.length;
+		final int rings = reach(radius);
+		Arrays.fill(claimed, false);
+
+		int size = 0;
+		loop:
+		for (int d = 0; d <= rings; d++)
+		for (int x = -d; x <= d; x++)
+		for (int z = -d; z <= d; z++) {
+			if (Math.abs(x) != d && Math.abs(z) != d) continue;
+			final int xR = x+xCenter, zR = z+zCenter;
+			if (!inWorld(xR, zR)) continue;
+
+			ChunkRegion region = world.regions[xR][zR];
+			if (region == null) {
+				// Evicted, its neighbours wait until it's read back.
+				if (world.evicted[xR][zR]) continue;
+				region = new ChunkRegion(world, xR, zR);
+				world.regions[xR][zR] = region;
+			}
+
+			final int stage = region.state;
+			if (stage >= last || d > radius+reach[stage]) continue;
+			final int near = stages[stage].radius;
+			if (!neighbours(region, near, stage) || !ordered(region, near, stage) || !claim(region, near)) continue;
+
+			if (size == tasks.length) tasks = Arrays.copyOf(tasks, size*2);
+			tasks[size++] = region;
+			if (size == maxTasks) break loop;
+		}
+
+		RegionTask.run(world, stages, tasks, size);
+		for (int i = 0; i < size; i++) {
+			touch(tasks[i], stages[tasks[i].state].radius);
+			tasks[i].state++;
+			tasks[i] = null;
+		}
+		int changed = size;
+		if (size != 0) GenProfiler.end("passes", time);
+
+		// Ready, once the heights are built.
+		if (last == 0) return changed;
+		final int near = stages[last-1].radius;
+		size = 0;
+		for (int d = 0; d <= radius; d++)
+		for (int x = -d; x <= d; x++)
+		for (int z = -d; z <= d; z++) {
+			if (Math.abs(x) != d && Math.abs(z) != d) continue;
+			final ChunkRegion region = world.getChunkRegion(x+xCenter, z+zCenter);
+			if (region == null || region.state != last || !neighbours(region, near, last)) continue;
+			if (size == tasks.length) tasks = Arrays.copyOf(tasks, size*2);
+			tasks[size++] = region;
+		}
+		final long heights = GenProfiler.start();
+		HeightTask.run(tasks, size);
+		if (size != 0) GenProfiler.end("heights", heights);
+		for (int i = 0; i < size; i++) {
+			touch(tasks[i], 0);
+			tasks[i].state = READY;
+			tasks[i] = null;
+		}
+		newReady += size;
+		return changed + size;
+	}
+
+	/** Count an edit on the chunks of the regions within the radius, the ones a stage may have written, so the blocks and
+	 * the state are saved again. The ready regions are never touched by a stage. */
+	private void touch(ChunkRegion region, int radius) {
+		for (int x = -radius; x <= radius; x++)
+		for (int z = -radius; z <= radius; z++) {
+			final ChunkRegion other = world.getChunkRegion(region.xR+x, region.zR+z);
+			if (other == null || other.isReady()) continue;
+			for (Chunk chunk : other.chunks) {
+				chunk.version++;
+			}
+		}
+	}
+
+	/** Check all the regions in the world within the radius are at least at the state. */
+	private boolean neighbours(ChunkRegion region, int radius, int state) {
+		for (int x = -radius; x <= radius; x++)
+		for (int z = -radius; z <= radius; z++) {
+			final int xR = region.xR+x, zR = region.zR+z;
+			if (!inWorld(xR, zR)) continue;
+			final ChunkRegion other = world.regions[xR][zR];
+			if (other == null || other.state < state) return false;
+		}
+		return true;
+	}
+
+	/** Check the adjacent regions of a lower phase are done with the stage. A stage without a radius has no order. */
+	private boolean ordered(ChunkRegion region, int radius, int stage) {
+		if (radius == 0) return true;
+		final int phase = phase(region.xR, region.zR);
+		for (int x = -1; x <= 1; x++)
+		for (int z = -1; z <= 1; z++) {
+			final int xR = region.xR+x, zR = region.zR+z;
+			if (!inWorld(xR, zR) || phase(xR, zR) >= phase) continue;
+			final ChunkRegion other = world.regions[xR][zR];
+			if (other == null || other.state <= stage) return false;
+		}
+		return true;
+	}
+
+	/** The order of a region among its adjacent regions, 0 to 3 around each 2x2 square. The adjacent regions never have
+	 * the same phase. Going around the square keeps the chains of lower phases within {@link #drift} regions. */
+	static int phase(int xR, int zR) {
+		return (zR&1)<<1 | (xR^zR)&1;
+	}
+
+	/** Claim the regions within the radius for a stage of this pass. Fails if any is claimed already. */
+	private boolean claim(ChunkRegion region, int radius) {
+		final int size = World.defaultSize;
+		final int xMin = Math.max(region.xR-radius, 0), xMax = Math.min(region.xR+radius, size-1);
+		final int zMin = Math.max(region.zR-radius, 0), zMax = Math.min(region.zR+radius, size-1);
+		for (int x = xMin; x <= xMax; x++)
+		for (int z = zMin; z <= zMax; z++) {
+			if (claimed[x*size+z]) return false;
+		}
+		for (int x = xMin; x <= xMax; x++)
+		for (int z = zMin; z <= zMax; z++) {
+			claimed[x*size+z] = true;
+		}
+		return true;
+	}
+
+	private static boolean inWorld(int xR, int zR) {
+		return xR >= 0 && zR >= 0 && xR < World.defaultSize && zR < World.defaultSize;
+	}
+}
@@ -0,0 +1,65 @@
+package com.andedit.arcubit.world.gen;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Cumulative time and calls of the generation sections: the {@link GenStage}s by their name, and the features in them
+ * as "stage/feature". The regions are generated in parallel, so the time of a section adds up all the threads, the
+ * "passes" section is the wall time of the pipeline passes. Thread safe. */
+public final class GenProfiler
+{
+	/** Set to true to time the sections. Off by default, turned on by the reports and the tools. */
+	public static volatile boolean enabled;
+
+	/** Sorted by name, so the features follow their stage. */
+	private static final ConcurrentSkipListMap<String, Section> sections = new ConcurrentSkipListMap<String, Section>();
+
+	/** The start time of a section. */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/** Add the time since the start to the section. */
+	public static void end(String name, long start) {
+		if (!enabled) return;
+		final long time = System.nanoTime()-start;
+		Section section = sections.get(name);
+		if (section == null) {
+			final Section old = sections.putIfAbsent(name, section = new Section());
+			if (old != null) section = old;
+		}
+		section.nanos.add(time);
+		section.calls.increment();
+	}
+
+	public static void reset() {
+		sections.clear();
+	}
+
+	/** A table of the sections with the calls, the total time and the average time of a call. */
+	public static String report() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-28s %10s %12s %12s%n", "section", "calls", "total ms", "avg us"));
+		for (Map.Entry<String, Section> entry : sections.entrySet()) {
+			final long calls = entry.getValue().calls.sum(), nanos = entry.getValue().nanos.sum();
+			builder.append(String.format("%-28s %10d %12.1f %12.2f%n", entry.getKey(), calls, nanos/1e6, calls == 0 ? 0 : nanos/1e3/calls));
+		}
+		return builder.toString();
+	}
+
+	/** The sections as a JSON object of {"calls", "nanos"} by name, to compare between runs. */
+	public static String toJson() {
+		final StringBuilder builder = new StringBuilder("{");
+		for (Map.Entry<String, Section> entry : sections.entrySet()) {
+			if (builder.length() != 1) builder.append(',');
+			builder.append("\n  \"").append(entry.getKey()).append("\": {\"calls\": ").append(entry.getValue().calls.sum());
+			builder.append(", \"nanos\": ").append(entry.getValue().nanos.sum()).append('}');
+		}
+		return builder.append("\n}\n").toString();
+	}
+
+	private static class Section {
+		final LongAdder nanos = new LongAdder(), calls = new LongAdder();
+	}
+}
@@ -0,0 +1,31 @@
+package com.andedit.arcubit.world.gen;
+
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+
+/** A stage of the region generation, like the terrain, the surface, the ores or the decorations. A stage of a region
+ * runs once all the regions within its radius are done with the previous stages, and it must only read and write the
+ * blocks of those regions. The stages of the regions far enough apart run in parallel.
+ * <p>
+ * A stage with a radius must keep what it reads and writes within half a region of its own region, so only the stages
+ * of the adjacent regions overlap. The {@link GenPipeline} runs those in a fixed order. */
+public abstract class GenStage
+{
+	public final String name;
+	/** The neighbour radius in regions. 0 only touches the region itself, 1 reaches half a region into the neighbours. */
+	public final int radius;
+
+	public GenStage(String name, int radius) {
+		this.name = name;
+		this.radius = radius;
+	}
+
+	/** Run the stage on the region. Every region has its own random streams from the seed, and the overlapping stages
+	 * run in a fixed order, so the result does not depend on the order the regions are generated in. */
+	public abstract void gen(World world, ChunkRegion region);
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
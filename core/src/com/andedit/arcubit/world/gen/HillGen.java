@@ -1,12 +1,11 @@
 package com.andedit.arcubit.world.gen;
 
-import static com.badlogic.gdx.math.MathUtils.floor;
-
 import com.andedit.arcubit.block.Blocks;
 import com.andedit.arcubit.chunk.Chunk;
 import com.andedit.arcubit.chunk.ChunkRegion;
 import com.andedit.arcubit.util.math.OpenSimplex2S;
 import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.features.Canopies;
 import com.andedit.arcubit.world.gen.features.Lands;
 import com.andedit.arcubit.world.gen.features.Tree;
 import com.andedit.arcubit.world.gen.structure.Structure;
@@ -14,113 +13,142 @@ import com.andedit.arcubit.world.gen.structure.StrutBuilder;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.RandomXS128;
 
-public class HillGen implements Generator 
+public class HillGen implements Generator, RegionGen 
 {
-	private final RandomXS128 rand;
+	private final long seed;
 	private final OpenSimplex2S hill;
 	private final OpenSimplex2S base;
 	private final OpenSimplex2S rock;
 	private final OpenSimplex2S flat;
+	private final Canopies canopies;
+	private final Structure house, well, dungon;
+	private final GenStage[] stages;
+	
+	/** The density lattice steps of the new hill worlds, {@link RegionGen#HILL_COARSE}. */
+	public static final int coarseXZ = 4, coarseY = 8;
+	
+	/** The hills density, sampled coarse by a {@link DensitySampler}. */
+	private final DensitySampler.Field hills;
+	/** The density lattice steps, the quality of the hills. */
+	public final int xzStep, yStep;
 	
 	public HillGen() {
-		rand = new RandomXS128();
+		this(MathUtils.random.nextLong());
+	}
+	
+	/** Samples the hills density on the coarse lattice, the generator of the new hill worlds. */
+	public HillGen(long seed) {
+		this(seed, coarseXZ, coarseY);
+	}
+	
+	/** @param xzStep the blocks between the hills density samples on X and Z, must divide the chunk size.
+	 * @param yStep the blocks between the hills density samples on Y, must divide the region height. 1 and 1 samples
+	 * every block, as the hill worlds saved before the lattice. Only these and the coarse steps have an id to be saved
+	 * with, the other steps are for the benchmarks. */
+	public HillGen(long seed, int xzStep, int yStep) {
+		this.seed = seed;
+		this.xzStep = xzStep;
+		this.yStep = yStep;
+		final RandomXS128 rand = Seeds.random(seed, Seeds.TERRAIN);
 		
 		base = new OpenSimplex2S(rand.nextLong());
 		hill = new OpenSimplex2S(rand.nextLong());
 		rock = new OpenSimplex2S(rand.nextLong());
 		flat = new OpenSimplex2S(rand.nextLong());
+		canopies = new Canopies(seed, 5);
+		hills = new DensitySampler.Field() {
+			@Override
+			public double get(double x, double y, double z) {
+				return hill.noise3_XZBeforeY(x/32d, y/24d, z/32d);
+			}
+
+			@Override
+			public void fill(double[] out, double x0, double y0, double z0, int nx, int ny, int nz, double xzStep, double yStep) {
+				hill.fillNoise3_XZBeforeY(out, x0/32d, y0/24d, z0/32d, nx, ny, nz, xzStep/32d, yStep/24d);
+			}
+		};
+		
+		final StrutBuilder build = new StrutBuilder();
+		house = FlatGen.getHouse(build);
+		house.fillGround = true;
+		well = FlatGen.getWell(build);
+		dungon = FlatGen.getDungeon(build);
+		
+		stages = new GenStage[] {
+			new GenStage("terrain", 0) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					genTerrain(region);
+				}
+			},
+			new GenStage("surface", 0) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					Lands.slowGen(region, null);
+				}
+			},
+			new GenStage("decorations", 1) {
+				@Override
+				public void gen(World world, ChunkRegion region) {
+					decorate(world, region);
+				}
+			}
+		};
 	}
 	
 	@Override
 	public void gen(World world) {
-		for (int x = 0; x < World.defaultSize; x++)
-		{
-			for (int z = 0; z < World.defaultSize; z++)
-			{
-				final ChunkRegion region = world.regions[x][z];
-				genRegion(region);
-				Lands.slowGen(region, null);
-			}
-		}
-		
-		worldGen(world);
+		RegionTask.genAll(world, this);
+	}
+	
+	@Override
+	public GenStage[] getStages() {
+		return stages;
+	}
+	
+	@Override
+	public int getId() {
+		if (xzStep == 1 && yStep == 1) return HILL;
+		if (xzStep == coarseXZ && yStep == coarseY) return HILL_COARSE;
+		throw new IllegalStateException("No generator id for the steps " + xzStep + "x" + yStep);
 	}
 
-	private void worldGen(World world) {
-		final float size = World.defaultSize*World.defaultSize;
-		
-		StrutBuilder build = new StrutBuilder();
-		Structure house = FlatGen.getHouse(build);
-		house.fillGround = true;
-		house.findGenAt(world, 0, World.CENTER, World.CENTER);
+	private void decorate(World world, ChunkRegion region) {
+		final int x1 = region.xR*Chunk.SIZE;
+		final int z1 = region.zR*Chunk.SIZE;
+		final int size = Chunk.SIZE;
+		RandomXS128 rand;
 		
-		Structure well = FlatGen.getWell(build);
-		int x1 = 0; //bSize/2;
-		int z1 = 0; //bSize/2;
-		int loop = floor(size*0.02f); // 0.1
-		for (int i = 0; i < loop; i++) {
-			well.findGenAt(world, -4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1, 22, 46);
+		long time = GenProfiler.start();
+		if (region.matches(World.CENTER>>4, World.CENTER>>4)) {
+			house.findGenAt(world, 0, World.CENTER, World.CENTER);
 		}
 		
-		build.begin(5, 6, 5);
-		build.set(Blocks.STONEBRICK, 0, 5, 0);
-		build.set(Blocks.STONEBRICK, 2, 5, 0);
-		build.set(Blocks.STONEBRICK, 0, 5, 2);
-		build.set(Blocks.STONEBRICK, 2, 5, 4);
-		build.set(Blocks.STONEBRICK, 4, 5, 2);
-		build.set(Blocks.STONEBRICK, 4, 5, 0);
-		build.set(Blocks.STONEBRICK, 0, 5, 4);
-		build.set(Blocks.STONEBRICK, 4, 5, 4);
-		build.fill(Blocks.STONEBRICK, 0, 0, 0, 4, 4, 4);
-		build.fill(Blocks.AIR, 1, 1, 1, 3, 3, 3);
-		build.fill(Blocks.AIR, 2, 1, 0, 2, 2, 0);
-		build.fill(Blocks.AIR, 0, 1, 2, 0, 2, 2);
-		build.fill(Blocks.AIR, 2, 1, 4, 2, 2, 4);
-		build.fill(Blocks.AIR, 4, 1, 2, 4, 2, 2);
-		build.fill(Blocks.LOG, 0, 0, 0, 0, 4, 0);
-		build.fill(Blocks.LOG, 4, 0, 0, 4, 4, 0);
-		build.fill(Blocks.LOG, 0, 0, 4, 0, 4, 4);
-		build.fill(Blocks.LOG, 4, 0, 4, 4, 4, 4);
-		Structure base = build.end();
-		base.fillGround = true;
-		
-		build.begin(7, 10, 7);
-		build.fill(Blocks.STONEBRICK, 2, 5, 2, 4, 5, 4);
-		build.fill(Blocks.STONEMOSS, 2, 6, 2, 4, 8, 4);
-		build.fill(Blocks.STONEBRICK, 0, 0, 0, 6, 4, 6);
-		build.fill(Blocks.AIR, 3, 3, 3, 3, 8, 3);
-		build.fill(Blocks.AIR, 2, 9, 2, 4, 9, 4);
-		build.fill(Blocks.AIR, 1, 1, 1, 5, 3, 5);
-		build.set(Blocks.COPPER, 1, 1, 1);
-		build.set(Blocks.COPPER, 1, 2, 1);
-		build.set(Blocks.COPPER, 1, 1, 2);
-		build.set(Blocks.GOLD, 5, 1, 5);
-		build.set(Blocks.GOLD, 4, 1, 5);
-		Structure dungon = build.end();
-		
-		loop = floor(size*0.014f); // 0.1
-		for (int i = 0; i < loop; i++) {
-			int x = rand.nextInt(World.LENGHT)-x1;
-			int z = rand.nextInt(World.LENGHT)-z1;
-			dungon.findGenAt(world, -8, x, z, 23, 35);
+		rand = random(Seeds.WELLS, region);
+		for (int i = FlatGen.count(rand, 0.02f); i > 0; i--) {
+			well.findGenAt(world, -4, rand.nextInt(size)+x1, rand.nextInt(size)+z1, 22, 46);
 		}
 		
-		
-		 /*
-		loop = floor(size*3.2f); // 3.2f
-		for (int i = 0; i < loop; i++) {
-			PlentPatch.create(world, 0.09f, 4, rand.nextInt(5)+4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
+		rand = random(Seeds.DUNGEONS, region);
+		for (int i = FlatGen.count(rand, 0.014f); i > 0; i--) {
+			int x = rand.nextInt(size)+x1;
+			int z = rand.nextInt(size)+z1;
+			dungon.findGenAt(world, -8, x, z, 23, 35);
 		}
 		
-		loop = floor(size*0.9f); // 2000
-		for (int i = 0; i < loop; i++) {
-			PlentPatch.createSrub(world, 4, rand.nextInt(5)+4, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
-		} */
+		GenProfiler.end("decorations/structures", time);
+		time = GenProfiler.start();
 		
-		loop = floor(size*0.35f); // 0.42
-		for (int i = 0; i < loop; i++) {
-			Tree.create2(world, 6 + rand.nextInt(3), 5, rand.nextInt(World.LENGHT)-x1, rand.nextInt(World.LENGHT)-z1);
+		rand = random(Seeds.TREE_SPOTS, region);
+		for (int i = FlatGen.count(rand, 0.35f); i > 0; i--) {
+			Tree.create(world, canopies, 6 + rand.nextInt(3), rand.nextInt(size)+x1, rand.nextInt(size)+z1);
 		}
+		GenProfiler.end("decorations/trees", time);
+	}
+	
+	/** The random stream of the feature in the region. */
+	private RandomXS128 random(int salt, ChunkRegion region) {
+		return new RandomXS128(Seeds.region(Seeds.mix(seed, salt), region.xR, region.zR));
 	}
 	
 	private static final double size = 150.0; // 128.0
@@ -129,26 +157,47 @@ public class HillGen implements Generator
 	private static final double depth = 16.0; // 16.0
 	public static final double height = 32.0; // 46.0
 
-	private void genRegion(ChunkRegion region) {
+	private void genTerrain(ChunkRegion region) {
 		final Chunk[] chunks = region.chunks;
 		final int xOffset = region.xR*Chunk.SIZE;
 		final int zOffset = region.zR*Chunk.SIZE;
-		for (int x = 0; x < Chunk.SIZE; x++) {
-			int realX = x+xOffset;
+		final int area = Chunk.SIZE*Chunk.SIZE;
+		final double[] rocks = new double[area], bases = new double[area], flats = new double[area];
+		final double[] column = new double[ChunkRegion.HEIGHT];
+		// Exact hills are sampled per block of the columns with hills, a lattice would only add work.
+		final DensitySampler density = xzStep == 1 && yStep == 1 ? null : new DensitySampler(hills, xzStep, yStep);
+		boolean loaded = false;
+		rock.fillNoise2(rocks, xOffset/32d, zOffset/32d, Chunk.SIZE, Chunk.SIZE, 1/32d);
+		base.fillNoise2(bases, xOffset/size, zOffset/size, Chunk.SIZE, Chunk.SIZE, 1/size);
+		flat.fillNoise2(flats, xOffset/size, zOffset/size, Chunk.SIZE, Chunk.SIZE, 1/size);
+		for (int x = 0; x < Chunk.SIZE; x++)
 		for (int z = 0; z < Chunk.SIZE; z++) {
-			int realZ = z+zOffset;
-			double lump = rock.noise2(realX/32d, realZ/32d)*4d;
-			double raw = base.noise2(realX/size, realZ/size);
-			double preScl = ((flat.noise2(realX/size, realZ/size)+1d)*0.5)*MathUtils.clamp(raw, 0d, 1d);
+			int i = x + z*Chunk.SIZE;
+			double lump = rocks[i]*4d;
+			double raw = bases[i];
+			double preScl = ((flats[i]+1d)*0.5)*MathUtils.clamp(raw, 0d, 1d);
 			double scl = preScl*scale;
+			if (scl >= 0.01) {
+				if (density == null) {
+					for (int y = 0; y < ChunkRegion.HEIGHT; y++) {
+						column[y] = hills.get(xOffset+x, y, zOffset+z);
+					}
+				} else {
+					if (!loaded) {
+						density.load(xOffset, zOffset);
+						loaded = true;
+					}
+					density.column(x, z, column);
+				}
+			}
 			for (int y = 0; y < ChunkRegion.HEIGHT; y++) {
 				//double noise3d = scl < 0.01 ? 0d : fast.GetPerlin(realX/26f, y/18f, realZ/26f);
-				double noise3d = scl < 0.01 ? 0d : hill.noise3_XZBeforeY(realX/32d, y/24d, realZ/32d);
+				double noise3d = scl < 0.01 ? 0d : column[y];
 				noise3d *= scl;
 				noise3d += lump+height+(scl*heightScl)+(MathUtils.clamp(raw, -1d, 0d)*depth);
 				if (noise3d < y) continue;
 				chunks[y>>>4].blocks[x][y&15][z] = Blocks.STONE;
 			}
-		}}
+		}
 	}
 }
@@ -0,0 +1,27 @@
+package com.andedit.arcubit.world.gen;
+
+/** Generates the world one region at a time, in stages. See {@link GenPipeline}. */
+public interface RegionGen
+{
+	/** The generator ids, saved with the world. HILL samples the hills at every block, as the hill worlds saved before
+	 * HILL_COARSE, which samples them on the lattice of {@link HillGen#coarseXZ} and {@link HillGen#coarseY}. */
+	public static final int FLAT = 0, HILL = 1, HILL_COARSE = 2;
+	/** The generator names by id. */
+	public static final String[] names = {"flat", "hill-exact", "hill"};
+
+	/** The stages in order, usually the terrain, the surface, the ores and the decorations. */
+	public GenStage[] getStages();
+
+	/** The id saved with the world, to make the same generator when it's loaded. */
+	public int getId();
+
+	/** A new generator of the id with the seed, null if the id is unknown. */
+	public static RegionGen newGen(int id, long seed) {
+		switch (id) {
+		case FLAT: return new FlatGen(seed);
+		case HILL: return new HillGen(seed, 1, 1);
+		case HILL_COARSE: return new HillGen(seed);
+		default: return null;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.andedit.arcubit.world.gen;
+
+import com.andedit.arcubit.util.threads.AsyncThreaded;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.save.Residency;
+import com.badlogic.gdx.utils.async.AsyncResult;
+
+/** Generates the regions around the camera on demand, a {@link GenPipeline} pass at a time on the loader thread. The
+ * stages taken by a pass run in parallel on the common pool. */
+public class RegionLoader extends AsyncThreaded<Integer>
+{
+	/** Max stages to run in a single pass, so the loader keeps up with a moving camera. */
+	public static final int batchSize = 64;
+
+	/** Ready radius in regions around the center. */
+	public int radius;
+	/** Evicts and reads back the regions between the passes, null to keep all the regions. */
+	public Residency residency;
+
+	private final GenPipeline pipeline;
+
+	/** The center of the running pass. */
+	private int xCenter = Integer.MIN_VALUE, zCenter = Integer.MIN_VALUE;
+
+	public RegionLoader(World world, RegionGen gen, int radius) {
+		super("Region Loader");
+		this.pipeline = new GenPipeline(world, gen);
+		this.radius = radius;
+	}
+
+	/** The farthest regions from the center a pass of the ready radius touches. */
+	public int reach(int radius) {
+		return pipeline.reach(radius);
+	}
+
+	/** Generate the area around the center on this thread until it is ready. Must not be called while a pass is running. */
+	public void genNow(int xCenter, int zCenter, int radius) {
+		this.xCenter = xCenter;
+		this.zCenter = zCenter;
+		pipeline.genAll(xCenter, zCenter, radius);
+		pipeline.newReady = 0;
+	}
+
+	/** Start the next pass around the region position once the last one is done. Call it every frame from the render
+	 * thread. Returns true if the last pass made some regions ready, or some were read back. */
+	public boolean update(int xCenter, int zCenter) {
+		if (!isDone()) return false;
+		final Integer changed = get();
+		boolean ready = pipeline.newReady != 0;
+		pipeline.newReady = 0;
+		if (residency != null && residency.update(xCenter, zCenter)) ready = true;
+		if (changed == null || changed != 0 || xCenter != this.xCenter || zCenter != this.zCenter) {
+			this.xCenter = xCenter;
+			this.zCenter = zCenter;
+			result = exe.submit(this);
+		}
+		return ready;
+	}
+
+	@Override
+	public Integer call() throws Exception {
+		return pipeline.pass(xCenter, zCenter, radius, batchSize);
+	}
+
+	@Override
+	public Integer get() {
+		if (result == null) return null;
+		final AsyncResult<Integer> result = this.result;
+		this.result = null;
+		return result.get();
+	}
+
+	@Override
+	public boolean isDone() {
+		return result == null ? true : result.isDone();
+	}
+}
@@ -0,0 +1,61 @@
+package com.andedit.arcubit.world.gen;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+
+/** Run the next stage of the regions [lo, hi), the stage of a region is its state. Splits in half until a single region
+ * is left. */
+class RegionTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
+	private final World world;
+	private final GenStage[] stages;
+	private final ChunkRegion[] regions;
+	private final int lo, hi;
+
+	RegionTask(World world, GenStage[] stages, ChunkRegion[] regions, int lo, int hi) {
+		this.world = world;
+		this.stages = stages;
+		this.regions = regions;
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	/** Run the next stage of the regions on the common pool. Blocks until done. The stages must not touch the same
+	 * regions. */
+	static void run(World world, GenStage[] stages, ChunkRegion[] regions, int size) {
+		if (size == 1) {
+			new RegionTask(world, stages, regions, 0, size).compute();
+		} else if (size != 0) {
+			ForkJoinPool.commonPool().invoke(new RegionTask(world, stages, regions, 0, size));
+		}
+	}
+
+	/** Generate all the regions of the world and make them ready. The regions the world has already are generated over. */
+	static void genAll(World world, RegionGen gen) {
+		for (ChunkRegion[] regions : world.regions)
+		for (ChunkRegion region : regions) {
+			if (region != null) region.state = ChunkRegion.EMPTY;
+		}
+		final int center = World.defaultSize/2;
+		new GenPipeline(world, gen).genAll(center, center, center);
+	}
+
+	@Override
+	protected void compute() {
+		if (hi - lo > 1) {
+			final int mid = (lo + hi) >>> 1;
+			invokeAll(new RegionTask(world, stages, regions, lo, mid), new RegionTask(world, stages, regions, mid, hi));
+			return;
+		}
+		final ChunkRegion region = regions[lo];
+		final GenStage stage = stages[region.state];
+		final long time = GenProfiler.start();
+		stage.gen(world, region);
+		GenProfiler.end(stage.name, time);
+	}
+}
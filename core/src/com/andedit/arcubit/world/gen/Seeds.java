@@ -0,0 +1,30 @@
+package com.andedit.arcubit.world.gen;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/** Seed mixing, so every part of the generation gets its own random stream from the world seed. */
+public final class Seeds
+{
+	// Salts of the random streams. Never change or reuse one, the worlds of a seed depend on them.
+	public static final int TERRAIN = 1, REGIONS = 2, TREES = 3, CLOUDS = 4;
+	public static final int WELLS = 5, DUNGEONS = 6, BASES = 7, PLANTS = 8, SHRUBS = 9, TREE_SPOTS = 10;
+	public static final int CANOPIES = 11;
+
+	/** Mix the salt into the seed. SplitMix64, nearby salts give unrelated seeds. */
+	public static long mix(long seed, long salt) {
+		long z = seed + (salt+1)*0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** A random stream of the seed for one feature. */
+	public static RandomXS128 random(long seed, int salt) {
+		return new RandomXS128(mix(seed, salt));
+	}
+
+	/** The seed of the region. Depends only on the world seed and the region position, not on the generation order. */
+	public static long region(long seed, int xR, int zR) {
+		return mix(mix(seed, xR), zR);
+	}
+}
@@ -0,0 +1,54 @@
+package com.andedit.arcubit.world.gen.features;
+
+import com.andedit.arcubit.util.math.FastNoise;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.Seeds;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.IntArray;
+
+/** A bank of tree canopy shapes, built once per seed. A canopy is a noisy ball of leaves cut from the trees noise at a
+ * random place, stored as a sorted list of packed offsets: x<<16 | z<<8 | y, each offset by {@link #size}. The list is
+ * ordered by column so a tree is stamped a column at a time. */
+public class Canopies
+{
+	/** Canopies in the bank, a power of two. */
+	public static final int count = 64;
+
+	/** The canopy radius, the offsets are in [-size, size). */
+	public final int size;
+
+	private final int[][] canopies = new int[count][];
+	private final long seed;
+
+	public Canopies(long seed, int size) {
+		this.seed = Seeds.mix(seed, Seeds.CANOPIES);
+		this.size = size;
+
+		final FastNoise noise = new FastNoise((int)Seeds.mix(seed, Seeds.TREES));
+		final RandomXS128 rand = new RandomXS128(this.seed);
+		final int len = size*2;
+		final float[] leaves = new float[len*len*len];
+		final IntArray list = new IntArray(len*len*len);
+		for (int i = 0; i < count; i++) {
+			final int x = rand.nextInt(World.LENGHT), y = 40+rand.nextInt(40), z = rand.nextInt(World.LENGHT);
+			noise.FillPerlin(leaves, (x-size)/3f, (y-size)/3f, (z-size)/3f, len, len, len, 1f/3f);
+			list.clear();
+			for (int x1 = 0; x1 < len; x1++)
+			for (int z1 = 0; z1 < len; z1++)
+			for (int y1 = 0; y1 < len; y1++) {
+				final int xd = x1-size, yd = y1-size, zd = z1-size;
+				float sqrt = (float)Math.sqrt((xd*xd)+(yd*yd)+(zd*zd));
+				sqrt -= size*0.7f;
+				if (leaves[x1 + len*(y1 + len*z1)] > sqrt) {
+					list.add(x1<<16 | z1<<8 | y1);
+				}
+			}
+			canopies[i] = list.toArray();
+		}
+	}
+
+	/** The canopy of the tree at the block position. Depends only on the seed and the position. */
+	public int[] get(int x, int z) {
+		return canopies[(int)Seeds.mix(Seeds.mix(seed, x), z) & (count-1)];
+	}
+}
@@ -1,11 +1,12 @@
 package com.andedit.arcubit.world.gen.features;
 
+import java.util.Random;
+
 import com.andedit.arcubit.chunk.ChunkRegion;
-import com.badlogic.gdx.math.MathUtils;
 
 public class OrePatch 
 {
-	public static void create (ChunkRegion region, float chance, byte replace, byte ore, int size, int x, int y, int z) 
+	public static void create (ChunkRegion region, float chance, byte replace, byte ore, int size, int x, int y, int z, Random rand) 
 	{
 		for (int x1 = -size; x1 < size; x1++)
 		{
@@ -14,7 +15,7 @@ public class OrePatch
 				for (int z1 = -size; z1 < size; z1++)
 				{
 					byte block = region.getBlockChunk(x+x1, y+y1, z+z1);
-					if (block == replace && MathUtils.randomBoolean(chance)) {
+					if (block == replace && rand.nextFloat() < chance) {
 						region.setBlockChunk(x+x1, y+y1, z+z1, ore);
 					}
 				}
@@ -2,34 +2,42 @@ package com.andedit.arcubit.world.gen.features;
 
 import static com.andedit.arcubit.block.Blocks.blocks;
 
+import java.util.Random;
+
 import com.andedit.arcubit.block.BlockType;
 import com.andedit.arcubit.block.Blocks;
 import com.andedit.arcubit.chunk.ChunkRegion;
 import com.andedit.arcubit.world.World;
 import com.badlogic.gdx.math.GridPoint2;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.FlushablePool;
 
 public class PlentPatch 
 {	
-	private static FlushablePool<GridPoint2> POOL = new FlushablePool<GridPoint2>(64, 64) {
+	/** A pool per thread, the decorations of the regions are placed in parallel. */
+	private static final ThreadLocal<FlushablePool<GridPoint2>> POOLS = new ThreadLocal<FlushablePool<GridPoint2>>() {
 		@Override
-		protected GridPoint2 newObject() {
-			return new GridPoint2();
+		protected FlushablePool<GridPoint2> initialValue() {
+			return new FlushablePool<GridPoint2>(64, 64) {
+				@Override
+				protected GridPoint2 newObject() {
+					return new GridPoint2();
+				}
+			};
 		}
 	};
 	
-	public static void create (World world, float flowerChange, int size, int loops, int x, int z) 
+	public static void create (World world, float flowerChange, int size, int loops, int x, int z, Random rand) 
 	{
+		final FlushablePool<GridPoint2> pool = POOLS.get();
 		GridPoint2[] targets = new GridPoint2[loops];
 		
 		for (int i = 0; i < loops; i++) {
-			int randX = MathUtils.random(-size, size);
-			int randZ = MathUtils.random(-size, size);
+			int randX = rand.nextInt(size*2+1)-size;
+			int randZ = rand.nextInt(size*2+1)-size;
 			for (int j = 0; j < loops; j++) 
 			{
 				if (targets[j] == null) {
-					targets[j] = POOL.obtain().set(randX, randZ);
+					targets[j] = pool.obtain().set(randX, randZ);
 					break;
 				} else if (targets[j].x == randX && targets[j].y == randZ) {
 					i--;
@@ -38,10 +46,10 @@ public class PlentPatch
 			}
 		}
 		
-		boolean flowerMode = MathUtils.randomBoolean(flowerChange);
+		boolean flowerMode = rand.nextFloat() < flowerChange;
 		
 		byte f = 0;
-		if (MathUtils.randomBoolean(0.5f)) {
+		if (rand.nextBoolean()) {
 			f = Blocks.FLOWER;
 		} else {
 			f = Blocks.ROSE;
@@ -67,20 +75,21 @@ public class PlentPatch
 			}
 		}
 		
-		POOL.flush();
+		pool.flush();
 	}
 	
-	public static void createSrub (World world, int size, int loops, int x, int z) 
+	public static void createSrub (World world, int size, int loops, int x, int z, Random rand) 
 	{
+		final FlushablePool<GridPoint2> pool = POOLS.get();
 		GridPoint2[] targets = new GridPoint2[loops];
 		
 		for (int i = 0; i < loops; i++) {
-			int randX = MathUtils.random(-size, size);
-			int randZ = MathUtils.random(-size, size);
+			int randX = rand.nextInt(size*2+1)-size;
+			int randZ = rand.nextInt(size*2+1)-size;
 			for (int j = 0; j < loops; j++) 
 			{
 				if (targets[j] == null) {
-					targets[j] = POOL.obtain().set(randX, randZ);
+					targets[j] = pool.obtain().set(randX, randZ);
 					break;
 				} else if (targets[j].x == randX && targets[j].y == randZ) {
 					i--;
@@ -104,6 +113,6 @@ public class PlentPatch
 			}
 		}
 		
-		POOL.flush();
+		pool.flush();
 	}
 }
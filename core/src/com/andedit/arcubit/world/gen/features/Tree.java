@@ -2,21 +2,21 @@ package com.andedit.arcubit.world.gen.features;
 
 import com.andedit.arcubit.block.Blocks;
 import com.andedit.arcubit.chunk.ChunkRegion;
-import com.andedit.arcubit.util.math.FastNoise;
 import com.andedit.arcubit.world.World;
-import com.badlogic.gdx.math.MathUtils;
 
 public class Tree 
 {
-	public static FastNoise noise = new FastNoise(MathUtils.random.nextInt());
-	
-	public static void create2(World world, int height, int size, int x, int z)
+	/** @param canopies the leaves shapes of the world seed. */
+	public static void create(World world, Canopies canopies, int height, int x, int z)
 	{
+		final ChunkRegion region = world.getChunkRegion(x>>4, z>>4);
+		if (region == null) return;
+		
 		byte leave;
 		byte log;
 		for (int y = ChunkRegion.HEIGHT-1; y > 20; y--)
 		{
-			byte blockData = world.getBlock(x, y, z);
+			byte blockData = region.getBlock(x, y, z);
 			if (blockData == Blocks.GRASS || blockData == Blocks.SNOWGRASS || blockData == Blocks.SAND)
 			{
 				if (blockData == Blocks.SAND) {
@@ -26,21 +26,8 @@ public class Tree
 					log = Blocks.LOG;
 					leave = Blocks.LEAVES;
 				}
-				//leaves(x, y, z, height);
-				if (leave != 0)
-				for (int x1 = -size; x1 < size; x1++)
-				{
-					for (int y1 = -size; y1 < size; y1++)
-					{
-						for (int z1 = -size; z1 < size; z1++)
-						{
-							float sqrt = (float)Math.sqrt((x1*x1)+(y1*y1)+(z1*z1));
-							sqrt -= size*0.7f;
-							if (noise.GetPerlin((x1+x)/3f, (y1+y)/3f, (z1+z)/3f) > sqrt) {
-								world.setBlock(x+x1, y+height+y1+(size/10), z+z1, leave);
-							}
-						}
-					}
+				if (leave != 0) {
+					stamp(world, canopies.get(x, z), canopies.size, x, y+height+(canopies.size/10), z, leave);
 				}
 				
 				int a = 0;
@@ -48,11 +35,29 @@ public class Tree
 					a = 1;
 					height -= 3;
 				}
-				for (int i = a; i < height; i++) {
-					world.setBlock(x, y+i, z, log);
+				for (int i = a; i < height && y+i < ChunkRegion.HEIGHT; i++) {
+					region.setBlock(x, y+i, z, log);
 				}
 				return;
 			}
 		}
 	}
+	
+	/** Stamp the canopy at the center, a column at a time so the region is looked up once per column. */
+	private static void stamp(World world, int[] canopy, int size, int x, int y, int z, byte id) {
+		ChunkRegion region = null;
+		int column = -1;
+		for (int i = 0; i < canopy.length; i++) {
+			final int offset = canopy[i];
+			final int xPos = x+(offset>>>16)-size;
+			final int zPos = z+((offset>>>8)&0xFF)-size;
+			if (offset>>>8 != column) {
+				column = offset>>>8;
+				region = world.getChunkRegion(xPos>>4, zPos>>4);
+			}
+			final int yPos = y+(offset&0xFF)-size;
+			if (region == null || yPos < 0 || yPos >= ChunkRegion.HEIGHT) continue;
+			region.setBlock(xPos, yPos, zPos, id);
+		}
+	}
 }
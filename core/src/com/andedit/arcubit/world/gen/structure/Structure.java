@@ -1,5 +1,7 @@
 package com.andedit.arcubit.world.gen.structure;
 
+import java.util.Arrays;
+
 import com.andedit.arcubit.chunk.Chunk;
 import com.andedit.arcubit.chunk.ChunkRegion;
 import com.andedit.arcubit.world.World;
@@ -16,27 +18,23 @@ public class Structure
 	
 	public boolean fillGround;
 	
-	protected byte[][][] data;
+	/** The blocks, -1 keeps the world block. Flatten as [x][y][z], so a z row is contiguous like in the chunks. */
+	protected byte[] data;
+	/** The rows without any -1 are copied whole. Indexed [x][y]. */
+	protected boolean[] solid;
 	
 	public Structure(int xSize, int ySize, int zSize) {
 		this.xSize = xSize;
 		this.ySize = ySize;
 		this.zSize = zSize;
-		data = new byte[xSize][ySize][zSize];
-		//Arrays.fill(data, Blocks.Air);
-		for (int x = 0; x < xSize; x++) {
-			for (int y = 0; y < ySize; y++) {
-				for (int z = 0; z < xSize; z++) {
-					data[x][y][z] = -1;
-				}
-			}
-		}
+		data = new byte[xSize*ySize*zSize];
+		Arrays.fill(data, (byte)-1);
 		xCenter = true;
 		yCenter = false;
 		zCenter = true;
 	}
 	
-	protected Structure(int xSize, int ySize, int zSize, byte[][][] data) {
+	protected Structure(int xSize, int ySize, int zSize, byte[] data) {
 		this.xSize = xSize;
 		this.ySize = ySize;
 		this.zSize = zSize;
@@ -46,6 +44,28 @@ public class Structure
 		zCenter = true;
 	}
 	
+	/** Index of the z row in the data. */
+	final int index(int x, int y) {
+		return (x*ySize + y)*zSize;
+	}
+	
+	/** Look for the solid rows. Called when the data is done. */
+	void build() {
+		solid = new boolean[xSize*ySize];
+		for (int x = 0; x < xSize; x++)
+		for (int y = 0; y < ySize; y++) {
+			final int row = index(x, y);
+			boolean isSolid = true;
+			for (int z = 0; z < zSize; z++) {
+				if (data[row+z] == -1) {
+					isSolid = false;
+					break;
+				}
+			}
+			solid[x*ySize + y] = isSolid;
+		}
+	}
+	
 	public void findGenAt(World world, int height ,int xPos, int zPos) {
 		findGenAt(world, height, xPos, zPos, 0, ChunkRegion.LENGTH*Chunk.SIZE);
 	}
@@ -62,8 +82,10 @@ public class Structure
 			z -= (zSize/2);
 		}
 		
+		final ChunkRegion region = world.getChunkRegion(x>>4, z>>4);
+		if (region == null) return;
 		for (int y = yMax; y > yMin; y--) {
-			if (world.getBlock(x, y, z) != 0) {
+			if (y < ChunkRegion.HEIGHT && y >= 0 && region.getBlock(x, y, z) != 0) {
 				if (yMax == y) return;
 				genAt(world, xPos, y+height, zPos);
 				return;
@@ -71,6 +93,8 @@ public class Structure
 		}
 	}
 	
+	/** Place the structure. It is clipped to the regions and the height, and copied a z row at a time straight into the
+	 * chunks. */
 	public void genAt(World world, int xPos, int yPos, int zPos) 
 	{		
 		if (xCenter) {
@@ -82,24 +106,58 @@ public class Structure
 		if (zCenter) {
 			zPos -= (zSize/2);
 		}
+		if (solid == null) build();
 		
+		final int yFrom = Math.max(0, -yPos), yTo = Math.min(ySize, ChunkRegion.HEIGHT-yPos);
 		for (int x = 0; x < xSize; x++) 
 		{
-			for (int z = 0; z < xSize; z++) 
+			final int xWorld = x+xPos;
+			// The z row is split where it crosses into the next region.
+			for (int z = 0; z < zSize;) 
 			{
-				for (int y = 0; y < ySize; y++) 
-				{
-					byte b = data[x][y][z];
-					if (b == -1) continue;
-					world.setBlock(x+xPos, y+yPos, z+zPos, b);
-					if (fillGround && y == 0) {
-						for (int i = yPos-1; i > -1; i--) {
-							if (world.getBlock(x+xPos, i, z+zPos) == 0) {
-								world.setBlock(x+xPos, i, z+zPos, b);
-							} else break;
-						}
+				final int zWorld = z+zPos;
+				final int zEnd = Math.min(zSize, z + Chunk.SIZE - (zWorld&15));
+				final ChunkRegion region = world.getChunkRegion(xWorld>>4, zWorld>>4);
+				if (region != null) {
+					copyRows(region, x, xWorld&15, yPos, yFrom, yTo, z, zEnd, zWorld&15);
+					if (fillGround) {
+						fillGround(region, x, xWorld&15, yPos, z, zEnd, zWorld&15);
 					}
 				}
+				z = zEnd;
+			}
+		}
+	}
+	
+	/** Copy the z range [zFrom, zTo) of the rows into the region column at x. */
+	private void copyRows(ChunkRegion region, int x, int xLocal, int yPos, int yFrom, int yTo, int zFrom, int zTo, int zLocal) {
+		final int length = zTo-zFrom;
+		for (int y = yFrom; y < yTo; y++) 
+		{
+			final int yWorld = y+yPos;
+			final byte[] row = region.chunks[yWorld>>>4].blocks[xLocal][yWorld&15];
+			final int from = index(x, y)+zFrom;
+			if (solid[x*ySize + y]) {
+				System.arraycopy(data, from, row, zLocal, length);
+				continue;
+			}
+			for (int i = 0; i < length; i++) {
+				final byte b = data[from+i];
+				if (b != -1) row[zLocal+i] = b;
+			}
+		}
+	}
+	
+	/** Fill the air below the bottom layer down to the ground, with the block above it. */
+	private void fillGround(ChunkRegion region, int x, int xLocal, int yPos, int zFrom, int zTo, int zLocal) {
+		final int bottom = index(x, 0);
+		for (int z = zFrom; z < zTo; z++, zLocal++) {
+			final byte b = data[bottom+z];
+			if (b == -1) continue;
+			for (int y = Math.min(yPos, ChunkRegion.HEIGHT)-1; y > -1; y--) {
+				final byte[] row = region.chunks[y>>>4].blocks[xLocal][y&15];
+				if (row[zLocal] != 0) break;
+				row[zLocal] = b;
 			}
 		}
 	}
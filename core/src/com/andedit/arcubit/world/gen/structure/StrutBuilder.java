@@ -1,5 +1,7 @@
 package com.andedit.arcubit.world.gen.structure;
 
+import java.util.Arrays;
+
 public class StrutBuilder {
 	
 	private Structure strut;
@@ -16,13 +18,14 @@ public class StrutBuilder {
 	
 	public Structure end() {
 		isBegin = false;
+		strut.build();
 		return strut;
 	}
 	
 	public void set(byte block, int x, int y, int z)
 	{
 		if (!isBegin) throw new IllegalStateException("StrutBuilder.begin must be called before building.");
-		strut.data[x][y][z] = block;
+		strut.data[strut.index(x, y)+z] = block;
 	}
 	
 	public void fill(byte block, int fromX, int fromY, int fromZ, int toX, int toY, int toZ)
@@ -55,10 +58,7 @@ public class StrutBuilder {
 		{
 			for (int y = fromY; y < toY; ++y)
 			{
-				for (int z = fromZ; z < toZ; ++z)
-				{
-					strut.data[x][y][z] = block;
-				}
+				Arrays.fill(strut.data, strut.index(x, y)+fromZ, strut.index(x, y)+toZ, block);
 			}
 		}
 	}
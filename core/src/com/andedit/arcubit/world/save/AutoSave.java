@@ -0,0 +1,241 @@
+package com.andedit.arcubit.world.save;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.util.threads.AsyncThreaded;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/** Saves the changed chunks in the background. The render thread takes a snapshot, a copy of the chunks behind their
+ * saved version with the state of their region, and the save thread appends them to the {@link Journal} of the save and
+ * syncs it. The regions still generating are saved with their state too, so a loaded save goes on generating them where
+ * it was and no stage runs again over the ready regions. A snapshot is only taken between the passes of the loader.
+ * Once the journal grows past {@link #maxJournal}, it's compacted into the save. A save costs as much as the edits
+ * since the last one, and a crash loses at most the last snapshot. The saved chunks can be read back on the save thread,
+ * for the {@link Residency}. */
+public class AutoSave extends AsyncThreaded<Void>
+{
+	/** Max chunks copied by a snapshot, half a MB, so a snapshot stays under a millisecond. The rest go in the next
+	 * snapshot. */
+	public static final int maxChunks = 128;
+	/** Journal length in bytes to compact it into the save. */
+	public static final long maxJournal = 4 << 20;
+
+	/** Seconds between the saves. */
+	public float interval = 60;
+
+	public final File file;
+	private final World world;
+
+	/** The chunks of the snapshot being written, the version and the flat copy of their blocks. The copies are reused
+	 * by the next snapshot. */
+	private final Array<Chunk> chunks = new Array<Chunk>(false, maxChunks);
+	private final int[] versions = new int[maxChunks], states = new int[maxChunks];
+	private final byte[][] copies = new byte[maxChunks][ChunkCodec.VOLUME];
+
+	// Save thread only.
+	private final ChunkCodec[] codecs = ChunkCodec.newCodecs();
+	private final ChunkCodec codec = codecs[ChunkCodec.DEFAULT];
+	private final byte[] payload = new byte[ChunkCodec.MAX];
+	private Journal journal;
+	/** The position in the journal of the last record of each chunk entry, emptied by the compaction. */
+	private final IntIntMap records = new IntIntMap();
+	/** The save to read the chunks not in the journal, opened on the first read and closed by the compaction. */
+	private RegionFile store;
+	/** The last task submitted to the save thread. */
+	private AsyncResult<?> task;
+
+	private float time;
+	/** Save on the next update, set when the last snapshot was full or by {@link #saveNow()}. */
+	private boolean saveNow;
+
+	public AutoSave(World world, File file) {
+		super("Auto Save");
+		this.world = world;
+		this.file = file;
+	}
+
+	/** Save as soon as the running save is done. */
+	public void saveNow() {
+		saveNow = true;
+	}
+
+	/** Start the next save when it is due and the last one is done. Call it every frame from the render thread. */
+	public void update(float delta) {
+		time += delta;
+		if (time < interval && !saveNow) return;
+		if (!isDone() || !isIdle()) return;
+		get();
+		time = 0;
+		saveNow = snapshot();
+		if (chunks.size != 0) result = exe.submit(this);
+	}
+
+	/** Check no pass of the loader runs, so the regions being generated can be copied. */
+	private boolean isIdle() {
+		return world.loader == null || world.loader.isDone();
+	}
+
+	/** Copy the changed chunks of the generated regions, a whole region at a time and at most {@link #maxChunks}. Must
+	 * be called between the passes of the loader. Returns true if some are left. */
+	private boolean snapshot() {
+		chunks.clear();
+		for (ChunkRegion[] row : world.regions)
+		for (ChunkRegion region : row) {
+			if (region == null || region.state == ChunkRegion.EMPTY) continue;
+			int changed = 0;
+			for (Chunk chunk : region.chunks) {
+				if (chunk.needSave()) changed++;
+			}
+			if (changed == 0) continue;
+			if (chunks.size + changed > maxChunks) return true;
+			for (Chunk chunk : region.chunks) {
+				if (!chunk.needSave()) continue;
+				ChunkCodec.copy(chunk.blocks, copies[chunks.size]);
+				versions[chunks.size] = chunk.version;
+				states[chunks.size] = region.state;
+				chunks.add(chunk);
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Void call() throws Exception {
+		if (journal == null) {
+			// Records left by a crash are not in the index, fold them in first.
+			Journal.compact(file);
+			journal = Journal.open(file, world.seed, world.genId);
+		}
+		for (int i = 0; i < chunks.size; i++) {
+			final Chunk chunk = chunks.get(i);
+			final long position = journal.append(chunk.x, chunk.z, chunk.y, states[i], payload, RegionFile.encode(codec, copies[i], payload));
+			records.put(RegionFile.entry(chunk.x, chunk.z, chunk.y), (int)position);
+		}
+		journal.sync();
+
+		if (journal.size() > maxJournal || !file.exists()) {
+			close();
+			Journal.compact(file);
+		}
+		return null;
+	}
+
+	/** Read the saved blocks of the region, from the journal or else the save, and make it ready. Save thread only. */
+	void read(ChunkRegion region) throws IOException {
+		if (store == null && file.exists()) store = RegionFile.open(file);
+		for (Chunk chunk : region.chunks) {
+			final int position = records.get(RegionFile.entry(chunk.x, chunk.z, chunk.y), -1);
+			if (position != -1) {
+				final int length = journal.read(position, payload);
+				if (length == 0) {
+					RegionFile.fill(chunk, Blocks.AIR);
+				} else {
+					RegionFile.decode(codecs, payload, length, chunk);
+				}
+				chunk.savedVersion = chunk.version;
+			} else if (store != null && store.has(region.xR, region.zR)) {
+				store.read(chunk);
+			} else {
+				throw new IOException("The region " + region.xR + ", " + region.zR + " is not saved.");
+			}
+		}
+		region.buildHeights();
+		region.state = ChunkRegion.READY;
+	}
+
+	/** Run the task on the save thread, after the running save. */
+	<T> AsyncResult<T> submit(AsyncTask<T> task) {
+		final AsyncResult<T> result = exe.submit(task);
+		this.task = result;
+		return result;
+	}
+
+	/** Close the journal and the save, the records are then only in the files. */
+	private void close() throws IOException {
+		records.clear();
+		try {
+			if (journal != null) journal.close();
+		} finally {
+			journal = null;
+			if (store != null) store.close();
+			store = null;
+		}
+	}
+
+	/** Finish the running save. The chunks of the snapshot are marked saved, or saved again with the next snapshot if
+	 * it failed. */
+	@Override
+	public Void get() {
+		if (result == null) return null;
+		try {
+			result.get();
+			saved();
+		} catch (GdxRuntimeException e) {
+			e.printStackTrace();
+		}
+		result = null;
+		return null;
+	}
+
+	private void saved() {
+		for (int i = 0; i < chunks.size; i++) {
+			chunks.get(i).savedVersion = versions[i];
+		}
+	}
+
+	@Override
+	public boolean isDone() {
+		return result == null ? true : result.isDone();
+	}
+
+	/** Finish the running save and the pass of the loader, and save all the rest on this thread. */
+	public void saveAll() {
+		get();
+		if (world.loader != null) world.loader.get();
+		// Wait on a read of the residency, it shares the journal.
+		if (task != null) {
+			try {
+				task.get();
+			} catch (GdxRuntimeException e) {
+				// Reported by its owner.
+			}
+			task = null;
+		}
+		while (true) {
+			final boolean more = snapshot();
+			if (chunks.size == 0) return;
+			try {
+				call();
+			} catch (Exception e) {
+				throw new GdxRuntimeException("Could not save the world.", e);
+			}
+			saved();
+			if (!more) return;
+		}
+	}
+
+	@Override
+	public void dispose() {
+		try {
+			saveAll();
+			close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (ChunkCodec codec : codecs) {
+				if (codec != null) codec.end();
+			}
+			super.dispose();
+		}
+	}
+}
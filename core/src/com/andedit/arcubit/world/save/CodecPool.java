@@ -0,0 +1,40 @@
+package com.andedit.arcubit.world.save;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** The codecs of the tasks of a parallel save or read, a set by id for each task running at once. A task obtains a set
+ * and frees it once done, and the pool is ended with the save or the read, so the native zlib streams of the deflate
+ * codecs don't outlive it. Thread safe. */
+class CodecPool
+{
+	private final ConcurrentLinkedQueue<ChunkCodec[]> free = new ConcurrentLinkedQueue<ChunkCodec[]>();
+	/** Every set made, to end them. */
+	private final ConcurrentLinkedQueue<ChunkCodec[]> all = new ConcurrentLinkedQueue<ChunkCodec[]>();
+
+	/** A free set of codecs by id, or a new one. */
+	ChunkCodec[] obtain() {
+		ChunkCodec[] codecs = free.poll();
+		if (codecs == null) {
+			codecs = ChunkCodec.newCodecs();
+			all.add(codecs);
+		}
+		return codecs;
+	}
+
+	void free(ChunkCodec[] codecs) {
+		free.add(codecs);
+	}
+
+	/** End all the codecs. Call it once no task runs. */
+	void end() {
+		for (ChunkCodec[] codecs : all) {
+			for (ChunkCodec codec : codecs) {
+				if (codec != null) codec.end();
+			}
+		}
+		all.clear();
+		free.clear();
+	}
+}
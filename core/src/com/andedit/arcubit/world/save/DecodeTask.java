@@ -0,0 +1,64 @@
+package com.andedit.arcubit.world.save;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveAction;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** Read the saved regions [lo, hi) out of the mapping of the file into new regions of the world. Splits in half until
+ * a single region is left. */
+class DecodeTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
+	private final RegionFile file;
+	private final CodecPool codecs;
+	private final World world;
+	private final ByteBuffer map;
+	/** The saved regions, [x*size+z]. */
+	private final int[] regions;
+	private final int lo, hi;
+
+	DecodeTask(RegionFile file, CodecPool codecs, World world, ByteBuffer map, int[] regions, int lo, int hi) {
+		this.file = file;
+		this.codecs = codecs;
+		this.world = world;
+		this.map = map;
+		this.regions = regions;
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	@Override
+	protected void compute() {
+		if (hi - lo > 1) {
+			final int mid = (lo + hi) >>> 1;
+			invokeAll(new DecodeTask(file, codecs, world, map, regions, lo, mid), new DecodeTask(file, codecs, world, map, regions, mid, hi));
+			return;
+		}
+		if (hi == lo) return;
+		final int i = regions[lo];
+		final int x = i/file.size, z = i%file.size;
+		final ChunkRegion region = new ChunkRegion(world, x, z);
+		final ByteBuffer map = this.map.duplicate(); // own position.
+		final ChunkCodec[] codecs = this.codecs.obtain();
+		final byte[] payload = new byte[ChunkCodec.MAX];
+		try {
+			for (Chunk chunk : region.chunks) {
+				file.read(chunk, map, codecs, payload);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.codecs.free(codecs);
+		}
+		region.buildHeights();
+		region.state = file.states[i];
+		world.regions[x][z] = region;
+	}
+}
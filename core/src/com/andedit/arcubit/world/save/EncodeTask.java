@@ -0,0 +1,68 @@
+package com.andedit.arcubit.world.save;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** Encode the chunks of the regions [lo, hi) of a row into the payloads of the row. Splits in half until a single
+ * region is left. */
+class EncodeTask extends RecursiveAction
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The encoded regions of a row along Z, reused from row to row. */
+	static class Row
+	{
+		final byte[][][] payloads;
+		final int[][] lengths;
+		/** The state of the regions, EMPTY if there is none. */
+		final int[] states;
+
+		Row(int size) {
+			payloads = new byte[size][ChunkRegion.LENGTH][ChunkCodec.MAX];
+			lengths = new int[size][ChunkRegion.LENGTH];
+			states = new int[size];
+		}
+	}
+
+	private final ChunkRegion[] regions;
+	private final Row row;
+	private final CodecPool codecs;
+	private final byte codec;
+	private final int lo, hi;
+
+	EncodeTask(ChunkRegion[] regions, Row row, CodecPool codecs, byte codec, int lo, int hi) {
+		this.regions = regions;
+		this.row = row;
+		this.codecs = codecs;
+		this.codec = codec;
+		this.lo = lo;
+		this.hi = hi;
+	}
+
+	@Override
+	protected void compute() {
+		if (hi - lo > 1) {
+			final int mid = (lo + hi) >>> 1;
+			invokeAll(new EncodeTask(regions, row, codecs, codec, lo, mid), new EncodeTask(regions, row, codecs, codec, mid, hi));
+			return;
+		}
+		final ChunkRegion region = regions[lo];
+		row.states[lo] = region == null ? ChunkRegion.EMPTY : region.state;
+		if (region == null) return;
+
+		final ChunkCodec[] codecs = this.codecs.obtain();
+		final ChunkCodec codec = codecs[this.codec];
+		final byte[] blocks = new byte[ChunkCodec.VOLUME];
+		try {
+			for (Chunk chunk : region.chunks) {
+				ChunkCodec.copy(chunk.blocks, blocks);
+				row.lengths[lo][chunk.y] = RegionFile.encode(codec, blocks, row.payloads[lo][chunk.y]);
+			}
+		} finally {
+			this.codecs.free(codecs);
+		}
+	}
+}
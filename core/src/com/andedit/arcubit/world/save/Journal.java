@@ -0,0 +1,223 @@
+package com.andedit.arcubit.world.save;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+
+/** An append-only log of chunk payloads next to the save, so a save costs as much as the chunks changed since the last
+ * one and not as much as the world. {@link #compact(File)} folds the records into the save. The records of a chunk are
+ * replayed in order, the last one wins. A torn record at the end, from a crash while appending, fails its checksum and
+ * is dropped.
+ * <pre>
+ * header int magic, long seed, int generator
+ * record int x, int z (region), int y (chunk), int state (of the region), int length, int crc32 of the payload, the
+ *        payload, 0 length if all air
+ * </pre>
+ * The region of a record is saved with the state of its last record, so a region still generating goes on from where
+ * it was. Not thread safe. */
+public final class Journal implements Closeable
+{
+	public static final int MAGIC = 0x4152434A; // ARCJ
+	static final int HEADER = 16, RECORD = 24;
+
+	public final long seed;
+	/** The {@link com.andedit.arcubit.world.gen.RegionGen} id of the world. */
+	public final int gen;
+	private final FileChannel channel;
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+	private final CRC32 crc = new CRC32();
+	private long size;
+
+	private Journal(FileChannel channel, long seed, int gen, long size) {
+		this.channel = channel;
+		this.seed = seed;
+		this.gen = gen;
+		this.size = size;
+	}
+
+	/** The journal file of the save. */
+	public static File of(File save) {
+		return new File(save.getPath() + ".journal");
+	}
+
+	/** Open the journal of the save to append. A torn record at the end is cut, and a journal of another world is
+	 * started over. */
+	public static Journal open(File save, long seed, int gen) throws IOException {
+		final FileChannel channel = FileChannel.open(of(save).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			final ByteBuffer old = readHeader(channel);
+			long size = -1;
+			if (old != null && old.getLong() == seed && old.getInt() == gen) {
+				size = read(channel, null, null);
+			}
+			if (size == -1) {
+				final ByteBuffer header = ByteBuffer.allocate(HEADER);
+				header.putInt(MAGIC).putLong(seed).putInt(gen).flip();
+				write(channel, header, 0);
+				size = HEADER;
+			}
+			channel.truncate(size);
+			return new Journal(channel, seed, gen, size);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** Append the payload of the chunk and the state of its region. Written for sure after {@link #sync()}. Returns the
+	 * position of the record. */
+	public long append(int xR, int zR, int y, int state, byte[] payload, int length) throws IOException {
+		final long position = size;
+		crc.reset();
+		crc.update(payload, 0, length);
+		record.clear();
+		record.putInt(xR).putInt(zR).putInt(y).putInt(state).putInt(length).putInt((int)crc.getValue()).flip();
+		write(channel, record, size);
+		write(channel, ByteBuffer.wrap(payload, 0, length), size+RECORD);
+		size += RECORD + length;
+		return position;
+	}
+
+	/** Read the payload of the appended record at the position. Returns the payload length, 0 if the chunk is all air. */
+	public int read(long position, byte[] payload) throws IOException {
+		record.clear();
+		read(channel, record, position);
+		final int length = record.getInt(16);
+		read(channel, ByteBuffer.wrap(payload, 0, length), position+RECORD);
+		return length;
+	}
+
+	public void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/** The length of the journal in bytes. */
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/** Fold the journal into the save and delete it. The save with the records is written densely into a temp file,
+	 * synced and renamed over the save, so a crash leaves either the old save and the journal, or the new save. Does
+	 * nothing without a journal. */
+	public static void compact(File save) throws IOException {
+		final File file = of(save);
+		if (!file.exists()) return;
+
+		final IntMap<byte[]> records = new IntMap<byte[]>();
+		final IntIntMap states = new IntIntMap();
+		long seed = 0;
+		int gen = 0;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer header = readHeader(channel);
+			if (header != null) {
+				seed = header.getLong();
+				gen = header.getInt();
+				read(channel, records, states);
+			}
+		}
+		if (records.size == 0) {
+			Files.delete(file.toPath());
+			return;
+		}
+
+		final File temp = new File(save.getPath() + ".tmp");
+		final RegionFile old = save.exists() ? RegionFile.open(save) : null;
+		try (RegionFile out = RegionFile.create(temp, seed, gen)) {
+			if (old != null && old.seed == seed && old.gen == gen) out.copy(old);
+			for (IntMap.Entry<byte[]> entry : records.entries()) {
+				final byte[] payload = entry.value;
+				out.writePayload(entry.key, payload, payload.length);
+			}
+			for (IntIntMap.Entry entry : states.entries()) {
+				out.setState(entry.key/out.size, entry.key%out.size, entry.value);
+			}
+			out.sync();
+		} finally {
+			if (old != null) old.close();
+		}
+		Files.move(temp.toPath(), save.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		syncFolder(save);
+		Files.delete(file.toPath());
+	}
+
+	/** The header after the magic, at the seed. Null if it's not a journal. */
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER) return null;
+		final ByteBuffer header = ByteBuffer.allocate(HEADER);
+		read(channel, header, 0);
+		header.flip();
+		return header.getInt() == MAGIC ? header : null;
+	}
+
+	/** Read the records into the map by the table entry and the states by the region, if not null. Returns the end of
+	 * the last whole record. */
+	private static long read(FileChannel channel, IntMap<byte[]> records, IntIntMap states) throws IOException {
+		final ByteBuffer record = ByteBuffer.allocate(RECORD);
+		final CRC32 crc = new CRC32();
+		final long size = channel.size();
+		long position = HEADER;
+		while (position+RECORD <= size) {
+			record.clear();
+			read(channel, record, position);
+			record.flip();
+			final int xR = record.getInt(), zR = record.getInt(), y = record.getInt(), state = record.getInt();
+			final int length = record.getInt(), check = record.getInt();
+			if (length < 0 || length > ChunkCodec.MAX || position+RECORD+length > size) break;
+			if (xR < 0 || zR < 0 || xR >= World.defaultSize || zR >= World.defaultSize || y < 0 || y >= ChunkRegion.LENGTH) break;
+			if (state <= ChunkRegion.EMPTY) break;
+
+			final byte[] payload = new byte[length];
+			read(channel, ByteBuffer.wrap(payload), position+RECORD);
+			crc.reset();
+			crc.update(payload, 0, length);
+			if ((int)crc.getValue() != check) break;
+
+			if (records != null) records.put(RegionFile.entry(xR, zR, y), payload);
+			if (states != null) states.put(xR*World.defaultSize + zR, state);
+			position += RECORD + length;
+		}
+		return position;
+	}
+
+	/** Sync the folder of the file, so a rename is on the disk too. Not supported by every system. */
+	static void syncFolder(File file) {
+		final File folder = file.getAbsoluteFile().getParentFile();
+		if (folder == null) return;
+		try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// Some systems can't open a folder.
+		}
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) < 0) throw new IOException("Unexpected end of the journal.");
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position() - start);
+		}
+	}
+}
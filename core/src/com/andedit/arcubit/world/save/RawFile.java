@@ -0,0 +1,158 @@
+package com.andedit.arcubit.world.save;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.chunk.HeightTask;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.RegionGen;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** The old .mclone save, a raw dump of all the blocks of the world in [x][y][z] order. The rows along Z are contiguous
+ * in the file and in the chunks, so the blocks are copied a row of a chunk at a time. */
+public final class RawFile
+{
+	public static final long LENGTH = (long)World.LENGHT*ChunkRegion.HEIGHT*World.LENGHT;
+	/** Bytes of a slab, the blocks of a row of regions along Z. */
+	static final int SLAB = Chunk.SIZE*ChunkRegion.HEIGHT*World.LENGHT;
+
+	/** Convert a dump into a {@link RegionFile} of the seed and the flat generator, with all the regions ready. The dump is read a slab at a
+	 * time, and the regions of a slab are encoded in parallel on the common pool and written in order. The memory
+	 * stays at a slab and its payloads, about 5 MB, whatever the length of the dump. */
+	public static void convert(File in, File out, long seed) throws IOException {
+		final ByteBuffer slab = ByteBuffer.allocate(SLAB);
+		final byte[][][] payloads = new byte[World.defaultSize][ChunkRegion.LENGTH][ChunkCodec.MAX];
+		final int[][] lengths = new int[World.defaultSize][ChunkRegion.LENGTH];
+		final CodecPool codecs = new CodecPool();
+
+		try (FileChannel channel = FileChannel.open(in.toPath(), StandardOpenOption.READ);
+			RegionFile save = RegionFile.create(out, seed, RegionGen.FLAT)) {
+			if (channel.size() < LENGTH) throw new IOException("Not a full world dump: " + in);
+			for (int xR = 0; xR < World.defaultSize; xR++) {
+				slab.clear();
+				while (slab.hasRemaining()) {
+					if (channel.read(slab, (long)xR*SLAB + slab.position()) < 0) throw new IOException("Unexpected end of the dump.");
+				}
+				ForkJoinPool.commonPool().invoke(new SlabTask(slab.array(), codecs, payloads, lengths, 0, World.defaultSize));
+				for (int zR = 0; zR < World.defaultSize; zR++) {
+					for (int y = 0; y < ChunkRegion.LENGTH; y++) {
+						save.writePayload(RegionFile.entry(xR, zR, y), payloads[zR][y], lengths[zR][y]);
+					}
+					save.setState(xR, zR, ChunkRegion.READY);
+				}
+			}
+			save.sync();
+		} finally {
+			codecs.end();
+		}
+	}
+
+	/** Read the blocks of the file into the regions of the world, and build their heights. */
+	public static void read(World world, File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() < LENGTH) throw new IOException("Not a full world dump: " + file);
+			final MappedByteBuffer map = channel.map(MapMode.READ_ONLY, 0, LENGTH);
+			for (int xR = 0; xR < World.defaultSize; xR++)
+			for (int zR = 0; zR < World.defaultSize; zR++) {
+				final ChunkRegion region = world.regions[xR][zR];
+				if (region == null) continue;
+				for (Chunk chunk : region.chunks) {
+					read(chunk, map);
+				}
+			}
+		}
+		HeightTask.run(world);
+	}
+
+	/** Write the blocks of the regions of the world into a dump, a slab at a time. The missing regions are air. */
+	public static void write(World world, File file) throws IOException {
+		final ByteBuffer slab = ByteBuffer.allocate(SLAB);
+		final byte[] array = slab.array();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int xR = 0; xR < World.defaultSize; xR++) {
+				Arrays.fill(array, Blocks.AIR);
+				for (int zR = 0; zR < World.defaultSize; zR++) {
+					final ChunkRegion region = world.regions[xR][zR];
+					if (region == null) continue;
+					for (Chunk chunk : region.chunks)
+					for (int x = 0; x < Chunk.SIZE; x++)
+					for (int y = 0; y < Chunk.SIZE; y++) {
+						System.arraycopy(chunk.blocks[x][y], 0, array, (x*ChunkRegion.HEIGHT + (chunk.y<<4)+y)*World.LENGHT + (zR<<4), Chunk.SIZE);
+					}
+				}
+				slab.clear();
+				while (slab.hasRemaining()) {
+					channel.write(slab, (long)xR*SLAB + slab.position());
+				}
+			}
+		}
+	}
+
+	/** Encode the chunks of the regions [lo, hi) of a slab. Splits in half until a single region is left. */
+	private static class SlabTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] slab;
+		private final CodecPool codecs;
+		private final byte[][][] payloads;
+		private final int[][] lengths;
+		private final int lo, hi;
+
+		SlabTask(byte[] slab, CodecPool codecs, byte[][][] payloads, int[][] lengths, int lo, int hi) {
+			this.slab = slab;
+			this.codecs = codecs;
+			this.payloads = payloads;
+			this.lengths = lengths;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > 1) {
+				final int mid = (lo + hi) >>> 1;
+				invokeAll(new SlabTask(slab, codecs, payloads, lengths, lo, mid), new SlabTask(slab, codecs, payloads, lengths, mid, hi));
+				return;
+			}
+			final int zR = lo;
+			final ChunkCodec[] codecs = this.codecs.obtain();
+			final ChunkCodec codec = codecs[ChunkCodec.DEFAULT];
+			final byte[] blocks = new byte[ChunkCodec.VOLUME];
+			try {
+				for (int y = 0; y < ChunkRegion.LENGTH; y++) {
+					// Transpose the rows of the chunk from the slab.
+					int i = 0;
+					for (int x = 0; x < Chunk.SIZE; x++)
+					for (int yl = 0; yl < Chunk.SIZE; yl++) {
+						System.arraycopy(slab, (x*ChunkRegion.HEIGHT + (y<<4)+yl)*World.LENGHT + (zR<<4), blocks, i, Chunk.SIZE);
+						i += Chunk.SIZE;
+					}
+					lengths[zR][y] = RegionFile.encode(codec, blocks, payloads[zR][y]);
+				}
+			} finally {
+				this.codecs.free(codecs);
+			}
+		}
+	}
+
+	private static void read(Chunk chunk, MappedByteBuffer map) {
+		final int xBlock = chunk.x<<4, yBlock = chunk.y<<4, zBlock = chunk.z<<4;
+		for (int x = 0; x < Chunk.SIZE; x++)
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			map.position(((xBlock+x)*ChunkRegion.HEIGHT + yBlock+y)*World.LENGHT + zBlock);
+			map.get(chunk.blocks[x][y]);
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package com.andedit.arcubit.world.save;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.RegionGen;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** The world save, a single file of independently compressed chunks.
+ * <pre>
+ * header   int magic, int version, long seed, int size (regions per side), int length (chunks per region),
+ *          int generator (a {@link RegionGen} id)
+ * states   int per region [x*size+z], the generation state, EMPTY if the region is not saved
+ * table    int sector, int bytes per chunk [(x*size+z)*length+y], sector 0 if the chunk is all air
+ * payloads sector aligned, a {@link ChunkCodec} payload: the codec id and the codec data
+ * </pre>
+ * A single chunk can be read or written in place, a payload that outgrows its sectors moves to the end of the file.
+ * The regions that are not saved are generated again from the seed by the generator. Not thread safe, but the whole world is saved and
+ * read in parallel. */
+public class RegionFile implements Closeable
+{
+	public static final int MAGIC = 0x41524342; // ARCB
+	public static final int VERSION = 2;
+	public static final int SECTOR = 256;
+
+	static final int HEADER = 28;
+
+	public final long seed;
+	/** The {@link RegionGen} id of the world. */
+	public final int gen;
+	/** Regions per side. */
+	public final int size;
+
+	private final FileChannel channel;
+	final int[] states;
+	private final int[] sectors, bytes;
+	/** The first free sector at the end of the file. */
+	private int end;
+
+	/** The codecs by id to read, and the codec to write. */
+	private final ChunkCodec[] codecs = ChunkCodec.newCodecs();
+	public ChunkCodec codec = codecs[ChunkCodec.DEFAULT];
+	// Work buffers.
+	private final byte[] payload = new byte[ChunkCodec.MAX];
+	private final byte[] flat = new byte[ChunkCodec.VOLUME];
+
+	private RegionFile(FileChannel channel, long seed, int gen, int size) {
+		this.channel = channel;
+		this.seed = seed;
+		this.gen = gen;
+		this.size = size;
+		states = new int[size*size];
+		sectors = new int[size*size*ChunkRegion.LENGTH];
+		bytes = new int[sectors.length];
+		end = sectorsOf(tablesEnd());
+	}
+
+	/** Create a new empty save of the world seed and {@link RegionGen} id, the file is overwritten. */
+	public static RegionFile create(File file, long seed, int gen) throws IOException {
+		final RandomAccessFile access = new RandomAccessFile(file, "rw");
+		access.setLength(0);
+		final RegionFile region = new RegionFile(access.getChannel(), seed, gen, World.defaultSize);
+		region.flush();
+		return region;
+	}
+
+	/** Open a save to read and write. */
+	public static RegionFile open(File file) throws IOException {
+		final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+		try {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER);
+			readFully(channel, header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC) throw new IOException("Not an arcubit save: " + file);
+			final int version = header.getInt();
+			if (version != VERSION) throw new IOException("Unsupported save version: " + version);
+			final long seed = header.getLong();
+			final int size = header.getInt(), length = header.getInt();
+			if (size != World.defaultSize || length != ChunkRegion.LENGTH) {
+				throw new IOException("Unsupported world size: " + size + "x" + length);
+			}
+			final int gen = header.getInt();
+			if (gen < 0 || gen >= RegionGen.names.length) throw new IOException("Unknown generator: " + gen);
+
+			final RegionFile region = new RegionFile(channel, seed, gen, size);
+			final ByteBuffer tables = ByteBuffer.allocate(region.tablesEnd()-HEADER);
+			readFully(channel, tables, HEADER);
+			tables.flip();
+			tables.asIntBuffer().get(region.states);
+			tables.position(region.states.length*4);
+			for (int i = 0; i < region.sectors.length; i++) {
+				region.sectors[i] = tables.getInt();
+				region.bytes[i] = tables.getInt();
+			}
+			region.end = Math.max(region.end, sectorsOf(channel.size()));
+			return region;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** Save the whole world into the file. */
+	public static void save(World world, File file) throws IOException {
+		save(world, file, ForkJoinPool.commonPool());
+	}
+
+	/** Save the whole world into the file. A row of regions is encoded in parallel on the pool while this thread writes
+	 * the row before, in order. */
+	public static void save(World world, File file, ForkJoinPool pool) throws IOException {
+		save(world, file, pool, ChunkCodec.DEFAULT);
+	}
+
+	/** Save the whole world into the file with the codec of the id. */
+	public static void save(World world, File file, ForkJoinPool pool, int codec) throws IOException {
+		final CodecPool codecs = new CodecPool();
+		try (RegionFile save = create(file, world.seed, world.genId)) {
+			save.codec = save.codecs[codec];
+			final int size = save.size;
+			final EncodeTask.Row[] rows = {new EncodeTask.Row(size), new EncodeTask.Row(size)};
+			ForkJoinTask<Void> next = pool.submit(new EncodeTask(world.regions[0], rows[0], codecs, save.codec.id, 0, size));
+			for (int x = 0; x < size; x++) {
+				final EncodeTask.Row row = rows[x&1];
+				next.join();
+				if (x+1 < size) {
+					next = pool.submit(new EncodeTask(world.regions[x+1], rows[(x+1)&1], codecs, save.codec.id, 0, size));
+				}
+				for (int z = 0; z < size; z++) {
+					if (row.states[z] == ChunkRegion.EMPTY) continue;
+					for (int y = 0; y < ChunkRegion.LENGTH; y++) {
+						save.writePayload(entry(x, z, y), row.payloads[z][y], row.lengths[z][y]);
+					}
+					save.states[x*size+z] = row.states[z];
+				}
+			}
+		} finally {
+			codecs.end();
+		}
+	}
+
+	/** Check the region is saved. */
+	public boolean has(int xR, int zR) {
+		return states[xR*size+zR] != ChunkRegion.EMPTY;
+	}
+
+	/** Read all the saved regions into the world. */
+	public void readAll(World world) throws IOException {
+		readAll(world, ForkJoinPool.commonPool());
+	}
+
+	/** Read all the saved regions into the world. The file is mapped once, and the regions are decoded in parallel on
+	 * the pool straight out of the mapping into the chunks. */
+	public void readAll(World world, ForkJoinPool pool) throws IOException {
+		final int[] saved = new int[states.length];
+		int count = 0;
+		for (int i = 0; i < states.length; i++) {
+			if (states[i] != ChunkRegion.EMPTY) saved[count++] = i;
+		}
+		read(world, pool, saved, count);
+	}
+
+	/** Read the saved regions within the radius around the region position, and all the saved regions still generating,
+	 * into the world. The rest are ready and left in the file, to be read on demand. */
+	public void readAround(World world, int xCenter, int zCenter, int radius) throws IOException {
+		final int[] saved = new int[states.length];
+		int count = 0;
+		for (int i = 0; i < states.length; i++) {
+			if (states[i] == ChunkRegion.EMPTY) continue;
+			final boolean near = Math.abs(i/size-xCenter) <= radius && Math.abs(i%size-zCenter) <= radius;
+			if (near || states[i] != ChunkRegion.READY) saved[count++] = i;
+		}
+		read(world, ForkJoinPool.commonPool(), saved, count);
+	}
+
+	/** Decode the saved regions of the indices in parallel, out of a mapping of the file. */
+	private void read(World world, ForkJoinPool pool, int[] saved, int count) throws IOException {
+		final MappedByteBuffer map = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		final CodecPool codecs = new CodecPool();
+		try {
+			pool.invoke(new DecodeTask(this, codecs, world, map, saved, 0, count));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			codecs.end();
+		}
+	}
+
+	/** Read the region with its state. */
+	public void read(ChunkRegion region) throws IOException {
+		for (Chunk chunk : region.chunks) {
+			read(chunk);
+		}
+		region.state = states[region.xR*size+region.zR];
+	}
+
+	/** Write the region with its state. The table is written on {@link #flush()}. */
+	public void write(ChunkRegion region) throws IOException {
+		for (Chunk chunk : region.chunks) {
+			write(chunk);
+		}
+		states[region.xR*size+region.zR] = region.state;
+	}
+
+	/** Read the chunk in place. */
+	public void read(Chunk chunk) throws IOException {
+		final int length = readPayload(entry(chunk.x, chunk.z, chunk.y), payload);
+		if (length == 0) {
+			fill(chunk, Blocks.AIR);
+		} else {
+			decode(codecs, payload, length, chunk);
+		}
+		chunk.savedVersion = chunk.version;
+	}
+
+	/** Read the chunk out of the mapping of the file. Thread safe while the tables don't change. */
+	void read(Chunk chunk, ByteBuffer map, ChunkCodec[] codecs, byte[] payload) throws IOException {
+		final int entry = entry(chunk.x, chunk.z, chunk.y);
+		final int length = bytes[entry];
+		if (sectors[entry] == 0) {
+			fill(chunk, Blocks.AIR);
+		} else {
+			final long position = (long)sectors[entry]*SECTOR;
+			if (position+length > map.limit()) throw new IOException("Unexpected end of the save.");
+			map.position((int)position);
+			map.get(payload, 0, length);
+			decode(codecs, payload, length, chunk);
+		}
+		chunk.savedVersion = chunk.version;
+	}
+
+	/** The payload length of the saved chunk, 0 if the chunk is all air or not saved. */
+	public int length(int xR, int zR, int y) {
+		return bytes[entry(xR, zR, y)];
+	}
+
+	/** Read the payload of the chunk entry. Returns the payload length, 0 if the chunk is all air. */
+	int readPayload(int entry, byte[] out) throws IOException {
+		if (sectors[entry] == 0) return 0;
+		final int length = bytes[entry];
+		readFully(channel, ByteBuffer.wrap(out, 0, length), (long)sectors[entry]*SECTOR);
+		return length;
+	}
+
+	/** Write the chunk, in place if it fits in its sectors. The table is written on {@link #flush()}. */
+	public void write(Chunk chunk) throws IOException {
+		ChunkCodec.copy(chunk.blocks, flat);
+		write(chunk, flat);
+	}
+
+	/** Write a flat copy of the blocks of the chunk, in place if it fits in its sectors. */
+	public void write(Chunk chunk, byte[] blocks) throws IOException {
+		writePayload(entry(chunk.x, chunk.z, chunk.y), payload, encode(codec, blocks, payload));
+	}
+
+	/** Write the payload of the chunk entry, 0 length for an all air chunk. */
+	void writePayload(int entry, byte[] payload, int length) throws IOException {
+		if (length == 0) {
+			sectors[entry] = 0;
+			bytes[entry] = 0;
+			return;
+		}
+		int sector = sectors[entry];
+		if (sector == 0 || sectorsOf(length) > sectorsOf(bytes[entry])) {
+			sector = end;
+			end += sectorsOf(length);
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(payload, 0, length);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, (long)sector*SECTOR + buffer.position());
+		}
+		sectors[entry] = sector;
+		bytes[entry] = length;
+	}
+
+	/** Copy the saved regions of the other save, the payloads as they are. */
+	void copy(RegionFile other) throws IOException {
+		for (int i = 0; i < states.length; i++) {
+			if (other.states[i] == ChunkRegion.EMPTY) continue;
+			states[i] = other.states[i];
+			for (int y = 0; y < ChunkRegion.LENGTH; y++) {
+				final int entry = i*ChunkRegion.LENGTH + y;
+				writePayload(entry, payload, other.readPayload(entry, payload));
+			}
+		}
+	}
+
+	public int getState(int xR, int zR) {
+		return states[xR*size+zR];
+	}
+
+	/** Set the generation state of the region, EMPTY to drop it from the save. */
+	public void setState(int xR, int zR, int state) {
+		states[xR*size+zR] = state;
+	}
+
+	/** Write the header and the tables, and force everything written so far to the disk. */
+	public void sync() throws IOException {
+		flush();
+		channel.force(true);
+	}
+
+	/** Write the header, the states and the table. */
+	public void flush() throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(tablesEnd());
+		buffer.putInt(MAGIC).putInt(VERSION).putLong(seed).putInt(size).putInt(ChunkRegion.LENGTH).putInt(gen);
+		for (int state : states) buffer.putInt(state);
+		for (int i = 0; i < sectors.length; i++) {
+			buffer.putInt(sectors[i]).putInt(bytes[i]);
+		}
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, buffer.position());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+			for (ChunkCodec codec : codecs) {
+				if (codec != null) codec.end();
+			}
+		}
+	}
+
+	/** The table entry of the chunk at the region position and the chunk height. */
+	static int entry(int xR, int zR, int y) {
+		return (xR*World.defaultSize + zR)*ChunkRegion.LENGTH + y;
+	}
+
+	private int tablesEnd() {
+		return HEADER + states.length*4 + sectors.length*8;
+	}
+
+	/** Encode the flat blocks of a chunk into the payload. Returns the payload length, 0 if the chunk is all air. */
+	static int encode(ChunkCodec codec, byte[] blocks, byte[] payload) {
+		for (int i = 0; i < ChunkCodec.VOLUME; i++) {
+			if (blocks[i] != Blocks.AIR) return codec.encodePayload(blocks, payload);
+		}
+		return 0;
+	}
+
+	/** Decode the payload with the codec of its id into the chunk. */
+	static void decode(ChunkCodec[] codecs, byte[] payload, int length, Chunk chunk) throws IOException {
+		final int id = payload[0];
+		if (id < 0 || id >= codecs.length || codecs[id] == null) throw new IOException("Unknown chunk codec: " + id);
+		codecs[id].decodePayload(payload, length, chunk);
+	}
+
+	static void fill(Chunk chunk, byte id) {
+		for (byte[][] plane : chunk.blocks)
+		for (byte[] row : plane) {
+			Arrays.fill(row, id);
+		}
+	}
+
+	private static int sectorsOf(long bytes) {
+		return (int)((bytes + SECTOR - 1) / SECTOR);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) < 0) throw new IOException("Unexpected end of the save.");
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package com.andedit.arcubit.world.save;
+
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.util.Util;
+import com.andedit.arcubit.world.World;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/** Keeps the regions near the camera in memory and drops the rest into the save. The regions within the radius stay,
+ * and so do the ones ahead of the camera. The rest are kept up to the budget and evicted past it, the least recently
+ * used first. The regions still generating can't be saved and always stay. Only ready regions
+ * with all the chunks saved by the {@link AutoSave} are evicted, so an eviction writes nothing. The evicted regions
+ * in the radius, and the ones ahead of the camera in the direction it moves, are read back on the save thread.
+ * <p>
+ * The regions are swapped in and out on the render thread between the passes of the {@link World#loader}, which skips
+ * the evicted regions rather than generate them. The radius must reach past the render distance and the meshes. */
+public class Residency implements AsyncTask<Void>
+{
+	/** Rough heap of a region, six chunks of 16x16 arrays of 16 blocks and the light map. */
+	public static final int regionBytes = 60 << 10;
+	/** Max regions evicted by an update, and read by a read. */
+	public static final int maxEvict = 16, maxRead = 16;
+
+	/** Radius in regions kept around the camera whatever the budget. */
+	public int radius;
+	/** Regions read ahead of the camera in the direction it moves. */
+	public int prefetch = 2;
+	/** Max regions in memory. */
+	public int budget;
+
+	private final World world;
+	private final AutoSave save;
+
+	/** The last update each region was in the radius, [x*size+z]. */
+	private final long[] used = new long[World.defaultSize*World.defaultSize];
+	private long tick;
+	/** The last center and the direction it moved. */
+	private int xLast = Integer.MIN_VALUE, zLast, xDir, zDir;
+
+	/** The regions of the running read, and the regions read. */
+	private final int[] reads = new int[maxRead];
+	private final ChunkRegion[] read = new ChunkRegion[maxRead];
+	private int readSize;
+	private long readTime;
+	private AsyncResult<Void> result;
+
+	/** Regions found in memory and found evicted as they came in the radius. */
+	public long hits, misses;
+	/** Regions evicted and read back. */
+	public long evictions, loads;
+	/** Total and max nanos from the read request to the region back in the world. */
+	public long loadNanos, maxLoadNanos;
+
+	/** @param budget max regions in memory, {@link #regionBytes} each. */
+	public Residency(World world, AutoSave save, int radius, int budget) {
+		this.world = world;
+		this.save = save;
+		this.radius = radius;
+		this.budget = budget;
+	}
+
+	/** Put back the regions read, then evict and read around the region position. Call it from the render thread
+	 * while no generation pass runs. Returns true if some regions are back. */
+	public boolean update(int xCenter, int zCenter) {
+		tick++;
+		final boolean back = install();
+		if (xCenter != xLast || zCenter != zLast) {
+			if (xLast != Integer.MIN_VALUE) {
+				xDir = Integer.signum(xCenter-xLast);
+				zDir = Integer.signum(zCenter-zLast);
+			}
+			lookup(xCenter, zCenter);
+			xLast = xCenter;
+			zLast = zCenter;
+		}
+
+		// The regions in the radius and ahead are kept.
+		final int xAhead = xCenter+xDir*prefetch, zAhead = zCenter+zDir*prefetch;
+		touch(xCenter, zCenter);
+		touch(xAhead, zAhead);
+
+		if (result == null) {
+			request(xCenter, zCenter);
+			request(xAhead, zAhead);
+			if (readSize != 0) {
+				readTime = System.nanoTime();
+				result = save.submit(this);
+			}
+		}
+		evict();
+		return back;
+	}
+
+	private void touch(int xCenter, int zCenter) {
+		final int size = World.defaultSize;
+		final int xMin = Math.max(xCenter-radius, 0), xMax = Math.min(xCenter+radius, size-1);
+		final int zMin = Math.max(zCenter-radius, 0), zMax = Math.min(zCenter+radius, size-1);
+		for (int x = xMin; x <= xMax; x++)
+		for (int z = zMin; z <= zMax; z++) {
+			used[x*size+z] = tick;
+		}
+	}
+
+	/** Count the regions that came in the radius, a hit if it's in memory and a miss if it has to be read. */
+	private void lookup(int xCenter, int zCenter) {
+		for (int x = -radius; x <= radius; x++)
+		for (int z = -radius; z <= radius; z++) {
+			final int xR = xCenter+x, zR = zCenter+z;
+			if (!inWorld(xR, zR)) continue;
+			if (xLast != Integer.MIN_VALUE && Math.abs(xR-xLast) <= radius && Math.abs(zR-zLast) <= radius) continue;
+			if (world.regions[xR][zR] != null) {
+				hits++;
+			} else if (world.evicted[xR][zR]) {
+				misses++;
+			}
+		}
+	}
+
+	/** Add the evicted regions in the radius around the center to the next read, the nearest first. */
+	private void request(int xCenter, int zCenter) {
+		for (int d = 0; d <= radius; d++)
+		for (int x = -d; x <= d; x++)
+		for (int z = -d; z <= d; z++) {
+			if (Math.abs(x) != d && Math.abs(z) != d) continue;
+			final int xR = xCenter+x, zR = zCenter+z;
+			if (!inWorld(xR, zR) || !world.evicted[xR][zR]) continue;
+			final int index = xR*World.defaultSize+zR;
+			if (contains(index)) continue;
+			if (readSize == maxRead) return;
+			reads[readSize++] = index;
+		}
+	}
+
+	private boolean contains(int index) {
+		for (int i = 0; i < readSize; i++) {
+			if (reads[i] == index) return true;
+		}
+		return false;
+	}
+
+	/** Put the regions of the finished read back in the world. */
+	private boolean install() {
+		if (result == null || !result.isDone()) return false;
+		try {
+			result.get();
+		} catch (GdxRuntimeException e) {
+			// Left evicted, read again by the next update.
+			final StringBuilder failed = new StringBuilder();
+			for (int i = 0; i < readSize; i++) {
+				if (read[i] == null) failed.append(" (").append(reads[i]/World.defaultSize).append(", ").append(reads[i]%World.defaultSize).append(')');
+			}
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			Util.log(Residency.class, "Could not read the regions" + failed + ": " + cause);
+		}
+		final long nanos = System.nanoTime()-readTime;
+		boolean back = false;
+		for (int i = 0; i < readSize; i++) {
+			final ChunkRegion region = read[i];
+			if (region == null) continue;
+			read[i] = null;
+			world.regions[region.xR][region.zR] = region;
+			world.evicted[region.xR][region.zR] = false;
+			used[reads[i]] = tick;
+			loads++;
+			loadNanos += nanos;
+			maxLoadNanos = Math.max(maxLoadNanos, nanos);
+			back = true;
+		}
+		readSize = 0;
+		result = null;
+		return back;
+	}
+
+	/** Evict the least recently used regions, not kept by this update, while over the budget. */
+	private void evict() {
+		final int size = World.defaultSize;
+		int resident = 0;
+		for (int x = 0; x < size; x++)
+		for (int z = 0; z < size; z++) {
+			if (world.regions[x][z] != null) resident++;
+		}
+
+		boolean unsaved = false;
+		for (int n = 0; n < maxEvict && resident > budget; n++) {
+			int oldest = -1;
+			for (int x = 0; x < size; x++)
+			for (int z = 0; z < size; z++) {
+				final int index = x*size+z;
+				if (used[index] == tick || oldest != -1 && used[index] >= used[oldest]) continue;
+				final ChunkRegion region = world.regions[x][z];
+				if (region == null || !region.isReady()) continue;
+				if (!isSaved(region)) {
+					unsaved = true;
+					continue;
+				}
+				oldest = index;
+			}
+			if (oldest == -1) break;
+			world.regions[oldest/size][oldest%size] = null;
+			world.evicted[oldest/size][oldest%size] = true;
+			resident--;
+			evictions++;
+		}
+		// The rest are evicted once saved.
+		if (unsaved) save.saveNow();
+	}
+
+	private static boolean isSaved(ChunkRegion region) {
+		for (Chunk chunk : region.chunks) {
+			if (chunk.needSave()) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public Void call() throws Exception {
+		for (int i = 0; i < readSize; i++) {
+			final ChunkRegion region = new ChunkRegion(world, reads[i]/World.defaultSize, reads[i]%World.defaultSize);
+			save.read(region);
+			read[i] = region;
+		}
+		return null;
+	}
+
+	/** The hits, the misses and the load latency. */
+	public String report() {
+		final double average = loads == 0 ? 0 : loadNanos/1e6/loads;
+		return String.format("regions hit %d, missed %d, evicted %d, loaded %d, load avg %.2f ms, max %.2f ms",
+			hits, misses, evictions, loads, average, maxLoadNanos/1e6);
+	}
+
+	private static boolean inWorld(int xR, int zR) {
+		return xR >= 0 && zR >= 0 && xR < World.defaultSize && zR < World.defaultSize;
+	}
+}
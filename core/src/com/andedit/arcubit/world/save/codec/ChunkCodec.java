@@ -0,0 +1,103 @@
+package com.andedit.arcubit.world.save.codec;
+
+import java.io.IOException;
+
+import com.andedit.arcubit.chunk.Chunk;
+
+/** Compresses the blocks of a chunk. A codec works on the blocks flatten in [x][y][z] order, the order of the rows in
+ * {@link Chunk#blocks}, or straight on a chunk through a flat copy. A payload starts with the codec {@link #id}, so a
+ * save can mix the codecs, see {@link #newCodec(int)}. The codecs keep work buffers, so they are not thread safe, use one
+ * per thread. */
+public abstract class ChunkCodec
+{
+	/** Blocks in a chunk. */
+	public static final int VOLUME = Chunk.SIZE*Chunk.SIZE*Chunk.SIZE;
+	/** Max length of an encoded chunk of any codec, the id included. */
+	public static final int MAX = 1 + 2*VOLUME + 64;
+
+	// The codec ids, in the order they were added. Never reuse an id, the saves keep them.
+	public static final byte PALETTE_DEFLATE = 1, RAW = 2, RLE = 3, PALETTE = 4, DEFLATE = 5, RLE_DEFLATE = 6;
+	/** The codec of the saves. */
+	public static final byte DEFAULT = PALETTE_DEFLATE;
+
+	public final byte id;
+	public final String name;
+
+	private final byte[] flat = new byte[VOLUME];
+
+	protected ChunkCodec(byte id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	/** Encode the flat blocks into out at the offset. Returns the length written. */
+	public abstract int encode(byte[] blocks, byte[] out, int offset);
+
+	/** Decode the encoded blocks of the given length at the offset into the flat blocks. */
+	public abstract void decode(byte[] in, int offset, int length, byte[] blocks) throws IOException;
+
+	/** Encode the flat blocks into a payload, the id and the data. Returns the payload length. */
+	public int encodePayload(byte[] blocks, byte[] payload) {
+		payload[0] = id;
+		return 1 + encode(blocks, payload, 1);
+	}
+
+	/** Encode the blocks of the chunk into a payload. Returns the payload length. */
+	public int encodePayload(Chunk chunk, byte[] payload) {
+		copy(chunk.blocks, flat);
+		return encodePayload(flat, payload);
+	}
+
+	/** Decode the payload of this codec into the chunk. */
+	public void decodePayload(byte[] payload, int length, Chunk chunk) throws IOException {
+		if (payload[0] != id) throw new IOException("Not a " + name + " payload: " + payload[0]);
+		decode(payload, 1, length-1, flat);
+		int i = 0;
+		for (int x = 0; x < Chunk.SIZE; x++)
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			System.arraycopy(flat, i, chunk.blocks[x][y], 0, Chunk.SIZE);
+			i += Chunk.SIZE;
+		}
+	}
+
+	/** Release the native resources. */
+	public void end() {
+	}
+
+	/** A new codec of the id, null if there is none. */
+	public static ChunkCodec newCodec(int id) {
+		switch (id) {
+		case PALETTE_DEFLATE: return new DeflateCodec(PALETTE_DEFLATE, "palette-deflate", new PaletteCodec());
+		case RAW: return new RawCodec();
+		case RLE: return new RleCodec();
+		case PALETTE: return new PaletteCodec();
+		case DEFLATE: return new DeflateCodec(DEFLATE, "deflate", new RawCodec());
+		case RLE_DEFLATE: return new DeflateCodec(RLE_DEFLATE, "rle-deflate", new RleCodec());
+		default: return null;
+		}
+	}
+
+	/** A new instance of every codec, indexed by the id. */
+	public static ChunkCodec[] newCodecs() {
+		final ChunkCodec[] codecs = new ChunkCodec[RLE_DEFLATE+1];
+		for (int id = 0; id < codecs.length; id++) {
+			codecs[id] = newCodec(id);
+		}
+		return codecs;
+	}
+
+	/** Copy the blocks of a chunk into a flat array in [x][y][z] order. */
+	public static void copy(byte[][][] blocks, byte[] out) {
+		int i = 0;
+		for (int x = 0; x < Chunk.SIZE; x++)
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			System.arraycopy(blocks[x][y], 0, out, i, Chunk.SIZE);
+			i += Chunk.SIZE;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,51 @@
+package com.andedit.arcubit.world.save.codec;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Another codec deflated with java.util.zip. Smaller and slower than the codec alone. */
+public class DeflateCodec extends ChunkCodec
+{
+	private final ChunkCodec codec;
+	private final byte[] work = new byte[MAX];
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	private final Inflater inflater = new Inflater();
+
+	public DeflateCodec(byte id, String name, ChunkCodec codec) {
+		super(id, name);
+		this.codec = codec;
+	}
+
+	@Override
+	public int encode(byte[] blocks, byte[] out, int offset) {
+		final int length = codec.encode(blocks, work, 0);
+		deflater.reset();
+		deflater.setInput(work, 0, length);
+		deflater.finish();
+		final int deflated = deflater.deflate(out, offset, out.length-offset);
+		if (!deflater.finished()) throw new IllegalStateException("Chunk payload overflow.");
+		return deflated;
+	}
+
+	@Override
+	public void decode(byte[] in, int offset, int length, byte[] blocks) throws IOException {
+		inflater.reset();
+		inflater.setInput(in, offset, length);
+		final int inflated;
+		try {
+			inflated = inflater.inflate(work);
+		} catch (DataFormatException e) {
+			throw new IOException("Broken " + name + " chunk.", e);
+		}
+		codec.decode(work, 0, inflated, blocks);
+	}
+
+	@Override
+	public void end() {
+		codec.end();
+		deflater.end();
+		inflater.end();
+	}
+}
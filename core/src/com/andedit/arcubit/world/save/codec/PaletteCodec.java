@@ -0,0 +1,72 @@
+package com.andedit.arcubit.world.save.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/** A palette of the blocks in the order of the first use, and the indices bit packed to 1, 2, 4 or 8 bits. A chunk of a
+ * single block has no indices. Chunks have a few kinds of blocks, so most of them pack to 1 or 2 bits. */
+public class PaletteCodec extends ChunkCodec
+{
+	private final int[] index = new int[256];
+
+	public PaletteCodec() {
+		super(PALETTE, "palette");
+	}
+
+	@Override
+	public int encode(byte[] blocks, byte[] out, int offset) {
+		final int[] index = this.index;
+		Arrays.fill(index, -1);
+		int count = 0;
+		for (int i = 0; i < VOLUME; i++) {
+			final int id = blocks[i]&0xFF;
+			if (index[id] == -1) {
+				index[id] = count;
+				out[offset + 1 + count++] = blocks[i];
+			}
+		}
+		out[offset] = (byte)(count-1);
+
+		final int bits = bitsOf(count);
+		int o = offset + 1 + count;
+		if (bits != 0) {
+			int packed = 0, shift = 0;
+			for (int i = 0; i < VOLUME; i++) {
+				packed |= index[blocks[i]&0xFF] << shift;
+				shift += bits;
+				if (shift == 8) {
+					out[o++] = (byte)packed;
+					packed = shift = 0;
+				}
+			}
+		}
+		return o-offset;
+	}
+
+	@Override
+	public void decode(byte[] in, int offset, int length, byte[] blocks) throws IOException {
+		final int count = (in[offset]&0xFF) + 1;
+		final int bits = bitsOf(count);
+		if (length != 1 + count + bits*VOLUME/8) throw new IOException("Broken palette chunk.");
+		final int palette = offset+1;
+		if (bits == 0) {
+			Arrays.fill(blocks, in[palette]);
+			return;
+		}
+		final int mask = (1 << bits) - 1;
+		int o = palette + count, shift = 0;
+		for (int i = 0; i < VOLUME; i++) {
+			blocks[i] = in[palette + ((in[o] >>> shift) & mask)];
+			shift += bits;
+			if (shift == 8) {
+				o++;
+				shift = 0;
+			}
+		}
+	}
+
+	/** Bits of an index into a palette of the size, 0 for a single block. */
+	static int bitsOf(int count) {
+		return count == 1 ? 0 : count <= 2 ? 1 : count <= 4 ? 2 : count <= 16 ? 4 : 8;
+	}
+}
@@ -0,0 +1,23 @@
+package com.andedit.arcubit.world.save.codec;
+
+import java.io.IOException;
+
+/** The blocks as they are. The fastest and the biggest, the base line. */
+public class RawCodec extends ChunkCodec
+{
+	public RawCodec() {
+		super(RAW, "raw");
+	}
+
+	@Override
+	public int encode(byte[] blocks, byte[] out, int offset) {
+		System.arraycopy(blocks, 0, out, offset, VOLUME);
+		return VOLUME;
+	}
+
+	@Override
+	public void decode(byte[] in, int offset, int length, byte[] blocks) throws IOException {
+		if (length != VOLUME) throw new IOException("Broken raw chunk: " + length);
+		System.arraycopy(in, offset, blocks, 0, VOLUME);
+	}
+}
@@ -0,0 +1,41 @@
+package com.andedit.arcubit.world.save.codec;
+
+import java.io.IOException;
+
+/** Runs of a block along the flat order, a run is the length-1 and the block, up to 256 blocks. Good on the layers of
+ * air and stone, poor on the mixed blocks like the ores and the leaves. */
+public class RleCodec extends ChunkCodec
+{
+	public RleCodec() {
+		super(RLE, "rle");
+	}
+
+	@Override
+	public int encode(byte[] blocks, byte[] out, int offset) {
+		int o = offset, i = 0;
+		while (i < VOLUME) {
+			final byte block = blocks[i];
+			final int end = Math.min(i+256, VOLUME);
+			int j = i+1;
+			while (j < end && blocks[j] == block) j++;
+			out[o++] = (byte)(j-i-1);
+			out[o++] = block;
+			i = j;
+		}
+		return o-offset;
+	}
+
+	@Override
+	public void decode(byte[] in, int offset, int length, byte[] blocks) throws IOException {
+		int i = 0;
+		for (int o = offset, end = offset+length; o < end; o += 2) {
+			final int run = (in[o]&0xFF) + 1;
+			if (i+run > VOLUME) throw new IOException("Broken rle chunk.");
+			final byte block = in[o+1];
+			for (int j = 0; j < run; j++) {
+				blocks[i++] = block;
+			}
+		}
+		if (i != VOLUME) throw new IOException("Broken rle chunk.");
+	}
+}
@@ -0,0 +1,258 @@
+package com.andedit.arcubit.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import com.andedit.arcubit.block.Blocks;
+import com.andedit.arcubit.chunk.Chunk;
+import com.andedit.arcubit.chunk.ChunkRegion;
+import com.andedit.arcubit.util.FileUtil;
+import com.andedit.arcubit.world.World;
+import com.andedit.arcubit.world.gen.GenProfiler;
+import com.andedit.arcubit.world.gen.HillGen;
+import com.andedit.arcubit.world.gen.RegionGen;
+import com.andedit.arcubit.world.save.Journal;
+import com.andedit.arcubit.world.save.RawFile;
+import com.andedit.arcubit.world.save.RegionFile;
+import com.andedit.arcubit.world.save.codec.ChunkCodec;
+
+/** Generate, convert and look into the worlds without the game, for batch jobs. Nothing of libGDX is started, the
+ * worlds are only blocks. The format of a file is by the extension, .arcubit for the {@link RegionFile} and anything
+ * else for the raw .mclone dump. */
+public class WorldTool
+{
+	static final String usage =
+		"usage: <command> [options]\n" +
+		"  generate <out> [-seed n] [-radius regions] [-gen name] [-codec name] [-profile]\n" +
+		"  convert <in> <out> [-seed n] [-codec name]   the seed of a dump, it's not in the file\n" +
+		"  stats <file>\n" +
+		"generators: flat (default), hill with the hills sampled every " + HillGen.coarseXZ + "x" + HillGen.coarseY + " blocks, " +
+		"hill-exact sampled at every block\n" +
+		"codecs: palette-deflate (default), raw, rle, palette, deflate, rle-deflate";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) exit(usage);
+		Blocks.loadBlocks();
+
+		final Options options = new Options(args);
+		final long time = System.nanoTime();
+		switch (args[0]) {
+		case "generate":
+			generate(options);
+			break;
+		case "convert":
+			convert(options);
+			break;
+		case "stats":
+			stats(options);
+			break;
+		default:
+			exit("Unknown command: " + args[0] + "\n" + usage);
+		}
+		System.out.println(String.format("Done in %.2f s.", (System.nanoTime()-time)/1e9));
+	}
+
+	/** Generate the regions within the radius around the center, and save them with the id of the generator, so the game
+	 * goes on with the same generator. */
+	static void generate(Options options) throws IOException {
+		final File out = options.file(1);
+		final long seed = options.getLong("seed", System.nanoTime());
+		final int radius = options.getInt("radius", World.defaultSize/2);
+		final String name = options.get("gen", "flat");
+		final int id = Arrays.asList(RegionGen.names).indexOf(name);
+		if (id == -1) throw exit("Unknown generator: " + name);
+		final RegionGen gen = RegionGen.newGen(id, seed);
+
+		// The spawn is generated by the world, left out of the profile.
+		final World world = new World(seed, gen);
+		GenProfiler.enabled = options.has("profile");
+		world.loader.genNow(World.CENTER>>4, World.CENTER>>4, radius);
+		if (GenProfiler.enabled) System.out.print(GenProfiler.report());
+		System.out.println("Generated " + name + " seed " + seed + " radius " + radius + ".");
+		write(world, out, options);
+		world.dispose();
+	}
+
+	/** Convert between the formats, or into an .arcubit with another codec. */
+	static void convert(Options options) throws IOException {
+		final File in = options.file(1), out = options.file(2);
+		if (!isSave(in) && isSave(out) && !options.has("codec")) {
+			// Streams the dump, a slab at a time.
+			RawFile.convert(in, out, options.getLong("seed", 0));
+		} else {
+			write(read(in, options), out, options);
+		}
+		System.out.println("Converted " + in + " (" + in.length() + " bytes) to " + out + " (" + out.length() + " bytes).");
+	}
+
+	/** Print the blocks and the chunks of the world. */
+	static void stats(Options options) throws IOException {
+		final File file = options.file(1);
+		final World world = read(file, options);
+		final RegionFile save = isSave(file) ? RegionFile.open(file) : null;
+		final long[] blocks = new long[256];
+		final long[] bits = new long[9];
+		final boolean[] seen = new boolean[256];
+		long regions = 0, ready = 0, chunks = 0, air = 0, single = 0, distinct = 0, saved = 0;
+		int most = 0;
+
+		try {
+			for (int xR = 0; xR < World.defaultSize; xR++)
+			for (int zR = 0; zR < World.defaultSize; zR++) {
+				final ChunkRegion region = world.regions[xR][zR];
+				if (region == null) continue;
+				regions++;
+				if (region.isReady()) ready++;
+				for (Chunk chunk : region.chunks) {
+					chunks++;
+					int count = 0;
+					Arrays.fill(seen, false);
+					for (byte[][] plane : chunk.blocks)
+					for (byte[] row : plane)
+					for (byte block : row) {
+						blocks[block&0xFF]++;
+						if (!seen[block&0xFF]) {
+							seen[block&0xFF] = true;
+							count++;
+						}
+					}
+					if (count == 1) {
+						single++;
+						if (seen[Blocks.AIR]) air++;
+					}
+					distinct += count;
+					most = Math.max(most, count);
+					bits[32-Integer.numberOfLeadingZeros(count-1)]++;
+					if (save != null) saved += save.length(xR, zR, chunk.y);
+				}
+			}
+		} finally {
+			if (save != null) save.close();
+		}
+
+		System.out.println(file + ", seed " + world.seed + ", generator " + RegionGen.names[world.genId] + ", " + file.length() + " bytes");
+		System.out.println("regions " + regions + ", ready " + ready + ", chunks " + chunks);
+		if (chunks == 0) return;
+		System.out.println("chunks all air " + air + ", of a single block " + single + String.format(", blocks per chunk avg %.2f max %d",
+			distinct/(double)chunks, most));
+		System.out.print("palette bits");
+		for (int i = 0; i < bits.length; i++) {
+			if (bits[i] != 0) System.out.print("  " + i + ": " + bits[i]);
+		}
+		System.out.println();
+		if (save != null && chunks != air) {
+			System.out.println(String.format("saved payloads %d bytes, avg %.1f bytes per chunk not air, ratio %.1f", saved,
+				saved/(double)(chunks-air), (chunks-air)*(double)ChunkCodec.VOLUME/Math.max(saved, 1)));
+		}
+
+		final long total = chunks*ChunkCodec.VOLUME;
+		System.out.println(String.format("%-16s %14s %8s", "block", "count", "%"));
+		for (int id = 0; id < blocks.length; id++) {
+			if (blocks[id] == 0) continue;
+			final String name = id < Blocks.size && Blocks.blocks[id] != null ? Blocks.blocks[id].name : "#" + id;
+			System.out.println(String.format("%-16s %14d %8.3f", name, blocks[id], blocks[id]*100.0/total));
+		}
+	}
+
+	/** Read a whole world, without the generation. */
+	static World read(File file, Options options) throws IOException {
+		if (isSave(file)) {
+			Journal.compact(file);
+			try (RegionFile save = RegionFile.open(file)) {
+				final World world = new World(save.seed, null, save);
+				// The regions not saved are made empty by the world, left out.
+				for (int xR = 0; xR < World.defaultSize; xR++)
+				for (int zR = 0; zR < World.defaultSize; zR++) {
+					if (!save.has(xR, zR)) world.regions[xR][zR] = null;
+				}
+				return world;
+			}
+		}
+		final World world = new World(false, options.getLong("seed", 0));
+		RawFile.read(world, file);
+		return world;
+	}
+
+	static void write(World world, File file, Options options) throws IOException {
+		if (isSave(file)) {
+			final String name = options.get("codec", null);
+			int id = name == null ? ChunkCodec.DEFAULT : -1;
+			for (ChunkCodec codec : ChunkCodec.newCodecs()) {
+				if (codec == null) continue;
+				if (codec.name.equals(name)) id = codec.id;
+				codec.end();
+			}
+			if (id == -1) throw exit("Unknown codec: " + name);
+			RegionFile.save(world, file, ForkJoinPool.commonPool(), id);
+			return;
+		}
+		RawFile.write(world, file);
+	}
+
+	static boolean isSave(File file) {
+		return FileUtil.extensionOf("arcubit", file.getName());
+	}
+
+	/** Print the message and exit with an error. Returns nothing, thrown for the compiler. */
+	static RuntimeException exit(String message) {
+		System.err.println(message);
+		System.exit(1);
+		return new IllegalStateException(message);
+	}
+
+	/** The arguments, the positional ones and the -name value options. A flag option has no value. */
+	static class Options
+	{
+		private final String[] args;
+
+		Options(String[] args) {
+			this.args = args;
+		}
+
+		File file(int index) {
+			int i = 0;
+			for (int j = 0; j < args.length; j++) {
+				if (args[j].startsWith("-")) {
+					// Skip the value.
+					if (!isFlag(args[j])) j++;
+					continue;
+				}
+				if (i++ == index) return new File(args[j]);
+			}
+			throw exit("Missing a file.\n" + usage);
+		}
+
+		boolean has(String name) {
+			for (String arg : args) {
+				if (arg.equals("-" + name)) return true;
+			}
+			return false;
+		}
+
+		String get(String name, String value) {
+			for (int i = 0; i < args.length-1; i++) {
+				if (args[i].equals("-" + name)) return args[i+1];
+			}
+			return value;
+		}
+
+		long getLong(String name, long value) {
+			final String arg = get(name, null);
+			try {
+				return arg == null ? value : Long.parseLong(arg);
+			} catch (NumberFormatException e) {
+				throw exit("Not a number: -" + name + " " + arg);
+			}
+		}
+
+		int getInt(String name, int value) {
+			return (int)getLong(name, value);
+		}
+
+		private static boolean isFlag(String arg) {
+			return arg.equals("-profile");
+		}
+	}
+}